@@ -0,0 +1,285 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+import java.util.zip.GZIPInputStream;
+/**
+ * Reads a simulation data file one customer at a time straight from its bytes.
+ * A plain file is memory-mapped a window at a time and parsed in place without
+ * copying it, and a file ending in .gz is decompressed as it is read, so even
+ * very large files are read in constant memory. The format is the same one
+ * LineSimulator has always read: the simulation name on the first line, the
+ * minutes and the number of counters, then one "time numItems" pair per customer.
+ *
+ * A record that is not a number is reported with the line it is on.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ArrivalFileReader implements ArrivalSource {
+	private static final int WINDOW_SIZE = 64 << 20;
+	private static final int STREAM_BUFFER_SIZE = 64 << 10;
+	private final String filename;
+	private final FileChannel file;
+	private final ReadableByteChannel stream;
+	private ByteBuffer buffer;
+	private long windowStart;
+	private int lineNumber;
+	private String simName;
+	private int mins;
+	private int numWindows;
+	private int time;
+	private int numItems;
+
+	/**
+	 * Creates a reader over an open file or stream and reads the header
+	 * @param filename the name of the file, for error messages
+	 * @param file the file to map, or null to read from the stream
+	 * @param stream the stream to read, or null to map the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private ArrivalFileReader(String filename, FileChannel file, ReadableByteChannel stream) throws IOException {
+		this.filename = filename;
+		this.file = file;
+		this.stream = stream;
+		this.buffer = stream == null ? ByteBuffer.allocate(0) : ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE).limit(0);
+		this.windowStart = 0;
+		this.lineNumber = 1;
+		this.time = -1;
+		this.numItems = -1;
+		try {
+			readHeader();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Opens a simulation data file, decompressing it if the name ends in .gz
+	 * @param filename the file with the simulation data
+	 * @return a reader positioned before the first customer
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public static ArrivalFileReader open(String filename) throws IOException {
+		FileInputStream in = new FileInputStream(filename);
+		try {
+			if(filename.endsWith(".gz")) {
+				return new ArrivalFileReader(filename, null,
+						Channels.newChannel(new GZIPInputStream(in, STREAM_BUFFER_SIZE)));
+			}
+			return new ArrivalFileReader(filename, in.getChannel(), null);
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves on to the next part of the file once the current one has been read
+	 * @return true if there is more to read, false at the end of the file
+	 */
+	private boolean refill() {
+		try {
+			if(stream != null) {
+				buffer.clear();
+				int read = 0;
+				while(read == 0) {
+					read = stream.read(buffer);
+				}
+				buffer.flip();
+				return read > 0;
+			}
+			long position = windowStart + buffer.limit();
+			long remaining = file.size() - position;
+			if(remaining <= 0) {
+				return false;
+			}
+			buffer = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, remaining));
+			windowStart = position;
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(filename + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the next byte of the file
+	 * @return the next byte or -1 at the end of the file
+	 */
+	private int read() {
+		if(!buffer.hasRemaining() && !refill()) {
+			return -1;
+		}
+		return buffer.get() & 0xff;
+	}
+
+	/**
+	 * Puts back the byte that was just read
+	 */
+	private void unread() {
+		buffer.position(buffer.position() - 1);
+	}
+
+	/**
+	 * Skips spaces and line breaks, counting the lines
+	 * @return the first byte that is not a space or -1 at the end of the file
+	 */
+	private int skipWhitespace() {
+		int b = read();
+		while(b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+			if(b == '\n') {
+				lineNumber++;
+			}
+			b = read();
+		}
+		return b;
+	}
+
+	/**
+	 * Reads a whole number that starts with the given byte
+	 * @param b the first byte of the number
+	 * @param what what the number is, for the error message
+	 * @return the number
+	 */
+	private int readInt(int b, String what) {
+		boolean negative = b == '-';
+		if(negative) {
+			b = read();
+		}
+		if(b < '0' || b > '9') {
+			throw malformed("expected " + what);
+		}
+		long value = 0;
+		while(b >= '0' && b <= '9') {
+			value = value * 10 + (b - '0');
+			if(value > Integer.MAX_VALUE + 1L) {
+				throw malformed(what + " is too large");
+			}
+			b = read();
+		}
+		if(b != -1) {
+			if(b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+				throw malformed("expected " + what);
+			}
+			unread();
+		}
+		value = negative ? -value : value;
+		if(value > Integer.MAX_VALUE) {
+			throw malformed(what + " is too large");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Creates the error for a record that cannot be read
+	 * @param message what was wrong
+	 * @return the error, naming the file and line
+	 */
+	private InputMismatchException malformed(String message) {
+		return malformed(lineNumber, message);
+	}
+
+	/**
+	 * Creates the error for a record that cannot be read
+	 * @param line the line the record is on
+	 * @param message what was wrong
+	 * @return the error, naming the file and line
+	 */
+	private InputMismatchException malformed(int line, String message) {
+		return new InputMismatchException(filename + " line " + line + ": " + message);
+	}
+
+	/**
+	 * Reads the simulation name, minutes and number of counters
+	 */
+	private void readHeader() {
+		StringBuilder name = new StringBuilder();
+		byte[] bytes = new byte[64];
+		int length = 0;
+		int b = read();
+		while(b != -1 && b != '\n') {
+			if(length == bytes.length) {
+				name.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+				length = 0;
+			}
+			bytes[length++] = (byte) b;
+			b = read();
+		}
+		if(length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		name.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+		simName = name.toString();
+		if(b == '\n') {
+			lineNumber++;
+		}
+		mins = readInt(skipWhitespace(), "the number of minutes");
+		numWindows = readInt(skipWhitespace(), "the number of counters");
+		//the rest of the line is ignored
+		b = read();
+		while(b != -1 && b != '\n') {
+			b = read();
+		}
+		if(b == '\n') {
+			lineNumber++;
+		}
+	}
+
+	public String getName() {
+		return simName;
+	}
+
+	public int getMinutes() {
+		return mins;
+	}
+
+	public int getNumWindows() {
+		return numWindows;
+	}
+
+	public boolean next() {
+		int b = skipWhitespace();
+		if(b == -1) {
+			return false;
+		}
+		time = readInt(b, "an arrival time");
+		int recordLine = lineNumber;
+		b = skipWhitespace();
+		if(b == -1) {
+			throw malformed(recordLine, "missing the number of items");
+		}
+		numItems = readInt(b, "a number of items");
+		return true;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getNumItems() {
+		return numItems;
+	}
+
+	/**
+	 * Gets the line of the file the reader is on
+	 * @return the line number, starting from 1
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	public void close() throws IOException {
+		if(stream != null) {
+			stream.close();
+		}
+		else {
+			file.close();
+		}
+	}
+}
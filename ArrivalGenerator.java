@@ -0,0 +1,135 @@
+import java.util.SplittableRandom;
+/**
+ * Makes up customer arrivals instead of reading them from a file. Customers
+ * arrive as a Poisson process whose rate can change every hour, and each
+ * customer's number of items is drawn from a histogram. The customers are made
+ * one at a time as the simulation asks for them, so the full list of customers
+ * is never kept.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ArrivalGenerator implements ArrivalSource {
+	private static final int SECONDS_PER_HOUR = 3600;
+	private final String simName;
+	private final int mins;
+	private final int numWindows;
+	private final double[] hourlyRates;
+	private final ItemHistogram items;
+	private final SplittableRandom random;
+	private double clock;
+	private int time;
+	private int numItems;
+
+	/**
+	 * Creates a generator of customers
+	 * @param simName the name of the simulation
+	 * @param mins the number of minutes customers arrive for
+	 * @param numWindows the number of counters that are open
+	 * @param hourlyRates the average number of customers arriving per hour, for each
+	 * hour of the simulation. The last rate is used for any hours after it.
+	 * @param items the histogram of the number of items customers have
+	 * @param random the random numbers for this generator alone
+	 */
+	public ArrivalGenerator(String simName, int mins, int numWindows, double[] hourlyRates,
+			ItemHistogram items, SplittableRandom random) {
+		if(hourlyRates.length == 0) {
+			throw new IllegalArgumentException("At least one hourly rate is needed");
+		}
+		for(double rate : hourlyRates) {
+			if(rate < 0) {
+				throw new IllegalArgumentException("Arrival rates cannot be negative");
+			}
+		}
+		this.simName = simName;
+		this.mins = mins;
+		this.numWindows = numWindows;
+		this.hourlyRates = hourlyRates.clone();
+		this.items = items;
+		this.random = random;
+		this.clock = 0;
+		this.time = -1;
+		this.numItems = -1;
+	}
+
+	/**
+	 * Measures the average number of customers arriving per hour in each hour of a
+	 * trace. A last hour that is cut short by the end of the simulation is scaled up
+	 * to a full hour.
+	 * @param trace the customers to measure
+	 * @return the arrival rate for each hour of the trace
+	 */
+	public static double[] hourlyRates(ArrivalTrace trace) {
+		int end = trace.getMinutes() * 60;
+		int hours = Math.max(1, (end + SECONDS_PER_HOUR - 1) / SECONDS_PER_HOUR);
+		double[] rates = new double[hours];
+		ArrivalSource source = trace.replay();
+		while(source.next()) {
+			if(source.getTime() >= 0 && source.getTime() < end) {
+				rates[source.getTime() / SECONDS_PER_HOUR]++;
+			}
+		}
+		int lastHour = end - (hours - 1) * SECONDS_PER_HOUR;
+		if(lastHour > 0 && lastHour < SECONDS_PER_HOUR) {
+			rates[hours - 1] *= (double) SECONDS_PER_HOUR / lastHour;
+		}
+		return rates;
+	}
+
+	public String getName() {
+		return simName;
+	}
+
+	public int getMinutes() {
+		return mins;
+	}
+
+	public int getNumWindows() {
+		return numWindows;
+	}
+
+	/**
+	 * Gets the arrival rate in customers per second at a point in the simulation
+	 * @param hour the hour of the simulation
+	 * @return the arrival rate during that hour
+	 */
+	private double rateDuring(int hour) {
+		return hourlyRates[Math.min(hour, hourlyRates.length - 1)] / SECONDS_PER_HOUR;
+	}
+
+	/**
+	 * Makes the next customer. The time until the next customer is drawn with the rate
+	 * of the current hour, and if it goes past the end of the hour the draw starts over
+	 * from the start of the next hour, which is exact because arrivals have no memory.
+	 */
+	public boolean next() {
+		int end = mins * 60;
+		while(clock < end) {
+			int hour = (int) (clock / SECONDS_PER_HOUR);
+			double hourEnd = (hour + 1) * (double) SECONDS_PER_HOUR;
+			double rate = rateDuring(hour);
+			double gap = rate > 0 ? -Math.log(1.0 - random.nextDouble()) / rate : Double.POSITIVE_INFINITY;
+			if(clock + gap < hourEnd) {
+				clock += gap;
+				if(clock >= end) {
+					break;
+				}
+				time = (int) clock;
+				numItems = items.sample(random);
+				return true;
+			}
+			clock = hourEnd;
+		}
+		clock = end;
+		return false;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getNumItems() {
+		return numItems;
+	}
+}
@@ -0,0 +1,78 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+/**
+ * A source of customer arrivals for the simulation. Along with the simulation
+ * settings from the header, it hands out the customers one at a time in the
+ * order they arrive, so a simulation never needs the whole list of customers.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public interface ArrivalSource extends Closeable {
+
+	/**
+	 * Opens a simulation data file, which can be a text file, a gzipped text file
+	 * ending in .gz or a binary trace
+	 * @param filename the file with the simulation data
+	 * @return a source positioned before the first customer
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	static ArrivalSource open(String filename) throws IOException {
+		byte[] start = new byte[BinaryTrace.START_LENGTH];
+		int length;
+		try (InputStream in = new FileInputStream(filename)) {
+			length = in.readNBytes(start, 0, start.length);
+		}
+		if(BinaryTrace.isBinaryTrace(start, length)) {
+			return new BinaryTraceReader(filename);
+		}
+		return ArrivalFileReader.open(filename);
+	}
+
+	/**
+	 * Gets the name of the simulation
+	 * @return the name of the simulation
+	 */
+	String getName();
+
+	/**
+	 * Gets the length of the simulation
+	 * @return the number of minutes the simulation runs
+	 */
+	int getMinutes();
+
+	/**
+	 * Gets the number of counters that are open during the simulation
+	 * @return the number of counters that are open
+	 */
+	int getNumWindows();
+
+	/**
+	 * Moves to the next customer
+	 * @return true if there is another customer, false if there are no more customers
+	 */
+	boolean next();
+
+	/**
+	 * Gets the time the current customer arrives
+	 * @return the time the current customer arrives
+	 */
+	int getTime();
+
+	/**
+	 * Gets the number of items the current customer has
+	 * @return the number of items the current customer has
+	 */
+	int getNumItems();
+
+	/**
+	 * Releases any file the source is reading. Sources that do not read a file
+	 * have nothing to release.
+	 * @throws IOException if the file cannot be closed
+	 */
+	default void close() throws IOException {
+	}
+}
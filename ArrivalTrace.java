@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.util.Arrays;
+/**
+ * Holds all the customer arrivals from a simulation data file in memory so the
+ * same file can be replayed by many simulations without reading it again. The
+ * trace never changes after it is loaded, so it can be replayed by several
+ * simulations running at the same time.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ArrivalTrace {
+	private final String simName;
+	private final int mins;
+	private final int numWindows;
+	private final int[] times;
+	private final int[] numItems;
+	private final int size;
+
+	/**
+	 * Reads every customer from the source into a trace
+	 * @param source the source of the customers
+	 */
+	public ArrivalTrace(ArrivalSource source) {
+		this.simName = source.getName();
+		this.mins = source.getMinutes();
+		this.numWindows = source.getNumWindows();
+		int[] times = new int[16];
+		int[] numItems = new int[16];
+		int size = 0;
+		while(source.next()) {
+			if(size == times.length) {
+				times = Arrays.copyOf(times, size * 2);
+				numItems = Arrays.copyOf(numItems, size * 2);
+			}
+			times[size] = source.getTime();
+			numItems[size] = source.getNumItems();
+			size++;
+		}
+		this.times = times;
+		this.numItems = numItems;
+		this.size = size;
+	}
+
+	/**
+	 * Reads the simulation data file, which can be text or a binary trace, into a trace
+	 * @param filename the file with the simulation data
+	 * @return the trace with every customer in the file
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public static ArrivalTrace load(String filename) throws IOException {
+		try (ArrivalSource infile = ArrivalSource.open(filename)) {
+			return new ArrivalTrace(infile);
+		}
+	}
+
+	public String getName() {
+		return simName;
+	}
+
+	public int getMinutes() {
+		return mins;
+	}
+
+	public int getNumWindows() {
+		return numWindows;
+	}
+
+	/**
+	 * Gets the number of customers in the trace
+	 * @return the number of customers in the trace
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Creates a new source that replays the customers in the trace from the start
+	 * @return a source positioned before the first customer
+	 */
+	public ArrivalSource replay() {
+		return new ArrivalSource() {
+			private int index = -1;
+
+			public String getName() {
+				return simName;
+			}
+
+			public int getMinutes() {
+				return mins;
+			}
+
+			public int getNumWindows() {
+				return numWindows;
+			}
+
+			public boolean next() {
+				if(index + 1 >= size) {
+					return false;
+				}
+				index++;
+				return true;
+			}
+
+			public int getTime() {
+				return times[index];
+			}
+
+			public int getNumItems() {
+				return numItems[index];
+			}
+		};
+	}
+}
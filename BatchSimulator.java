@@ -0,0 +1,346 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/**
+ * Simulates many simulation data files in one run without asking anything at the
+ * keyboard, so a whole set of store days can be replayed from a script. The files
+ * are simulated on a fixed number of threads, each with its own store and clock,
+ * and one line of JSON is written per file and line set up in the order the files
+ * were given. A file that cannot be read gets a line with the error instead of
+ * stopping the batch.
+ *
+ * Usage: java BatchSimulator [options] file|glob...
+ *
+ * Options are --layout single|multiple|both, --engine event|tick, --policy name
+ * (the dispatch policy for a line per counter, shortest by default), --threads N
+ * (the number of processors by default) and --out file (the results are printed
+ * if it is not given). A glob such as data/*.txt matches the files in its folder.
+ *
+ * With --cache dir the results are kept in a ResultCache in the folder, limited to
+ * --cache-size MB (64 by default). A file whose contents were already simulated with
+ * the same line set up and policy gets its result from there. The tick and event
+ * engines give the same results, so they share the cached results.
+ *
+ * With --stats file the full stats of every store, line and counter are also written
+ * to the file, and with --customers file a record of every customer who finished
+ * checking out is written to the file. Both are CSV for a file ending in .csv and
+ * JSON lines otherwise (see ResultsWriter). The stats are written in the same order
+ * as the results; the customers of files simulated at the same time are mixed
+ * together, each row naming its file. Nothing comes from the cache when either is
+ * given, since the cache only holds the results.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class BatchSimulator {
+	private boolean[] layouts = {false, true};
+	private boolean ticks = false;
+	private String policy = "shortest";
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String outFile = null;
+	private ResultCache cache = null;
+	private String cacheDir = null;
+	private long cacheMegabytes = 64;
+	private String statsFile = null;
+	private String customersFile = null;
+	private ResultsWriter customers = null;
+
+	/**
+	 * The results of one file: its lines of JSON and, unless it failed, the stats of each line set up
+	 */
+	private static class FileResult {
+		private final List<String> lines = new ArrayList<String>();
+		private final List<StoreStats> stats = new ArrayList<StoreStats>();
+		private boolean failed = false;
+
+		/**
+		 * Replaces whatever the file got so far with one line with the error
+		 * @param filename the file that could not be simulated
+		 * @param message what went wrong
+		 */
+		private void fail(String filename, String message) {
+			lines.clear();
+			stats.clear();
+			lines.add(errorJson(filename, message));
+			failed = true;
+		}
+	}
+	private List<String> files = new ArrayList<String>();
+
+	/**
+	 * Reads the options and files from the command line
+	 * @param args the command line arguments
+	 * @throws IOException if a glob's folder cannot be listed or the cache folder cannot be opened
+	 */
+	public void parseArgs(String[] args) throws IOException {
+		for(int i = 0; i < args.length; i++) {
+			if(!args[i].startsWith("--")) {
+				files.addAll(expand(args[i]));
+				continue;
+			}
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[++i];
+			switch(args[i - 1]) {
+				case "--layout":
+					switch(value) {
+						case "single": layouts = new boolean[] {false}; break;
+						case "multiple": layouts = new boolean[] {true}; break;
+						case "both": layouts = new boolean[] {false, true}; break;
+						default: throw new IllegalArgumentException("Unknown layout " + value);
+					}
+					break;
+				case "--engine":
+					if(!value.equals("event") && !value.equals("tick")) {
+						throw new IllegalArgumentException("Unknown engine " + value);
+					}
+					ticks = value.equals("tick");
+					break;
+				case "--policy": DispatchPolicy.forName(value, 1); policy = value; break;
+				case "--threads": threads = Integer.parseInt(value); break;
+				case "--out": outFile = value; break;
+				case "--cache": cacheDir = value; break;
+				case "--cache-size": cacheMegabytes = Long.parseLong(value); break;
+				case "--stats": statsFile = value; break;
+				case "--customers": customersFile = value; break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+			}
+		}
+		if(cacheDir != null) {
+			cache = new ResultCache(Paths.get(cacheDir), cacheMegabytes * 1024 * 1024);
+		}
+	}
+
+	/**
+	 * Turns a file name into the list of files it names. A name with *, ?, [ or { in its
+	 * last part is a glob and matches the files in its folder in sorted order. Any other
+	 * name is kept as it is so a missing file is reported with the other results.
+	 * @param arg the file name or glob
+	 * @return the files it names
+	 * @throws IOException if the glob's folder cannot be listed
+	 */
+	public static List<String> expand(String arg) throws IOException {
+		Path path = Paths.get(arg);
+		Path fileName = path.getFileName();
+		List<String> matches = new ArrayList<String>();
+		if(fileName == null || !fileName.toString().matches(".*[*?\\[{].*")) {
+			matches.add(arg);
+			return matches;
+		}
+		Path dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, fileName.toString())) {
+			for(Path match : stream) {
+				if(Files.isRegularFile(match)) {
+					matches.add(path.getParent() == null ? match.getFileName().toString() : match.toString());
+				}
+			}
+		} catch (NoSuchFileException e) {
+			//a glob in a folder that does not exist matches nothing
+		}
+		Collections.sort(matches);
+		return matches;
+	}
+
+	/**
+	 * Simulates one file with every line set up and describes the results
+	 * @param filename the file with the simulation data
+	 * @return one line of JSON per line set up, or one line with the error
+	 */
+	public List<String> simulate(String filename) {
+		return simulateFile(filename).lines;
+	}
+
+	/**
+	 * Simulates one file with every line set up, keeping the stats of each store as well
+	 * @param filename the file with the simulation data
+	 * @return the results of the file
+	 */
+	private FileResult simulateFile(String filename) {
+		FileResult result = new FileResult();
+		List<String> lines = result.lines;
+		boolean useCache = cache != null && statsFile == null && customersFile == null;
+		try {
+			String traceHash = cache == null ? null : ResultCache.hashFile(Paths.get(filename));
+			for(boolean multi : layouts) {
+				String key = null;
+				if(useCache) {
+					key = ResultCache.key(traceHash, "batch " + (multi ? "multiple policy " + policy : "single"));
+					String cached = cache.get(key);
+					if(cached != null) {
+						lines.add("{\"file\":" + JsonLinesResultsWriter.quote(filename) + cached);
+						continue;
+					}
+				}
+				try (ArrivalSource source = ArrivalSource.open(filename)) {
+					Store sim = new Store(source.getNumWindows(), multi, new SimulationContext(),
+							DispatchPolicy.forName(policy, 1));
+					if(customers != null) {
+						sim.setCustomerObserver(customers.customersFor(filename, multi));
+					}
+					if(ticks) {
+						LineSimulator.runTicks(source, sim, source.getMinutes()*60);
+					}
+					else {
+						new EventSimulator(sim).run(source, source.getMinutes()*60);
+					}
+					String stats = statsJson(source.getName(), source.getNumWindows(), multi, sim);
+					if(cache != null) {
+						if(key == null) {
+							key = ResultCache.key(traceHash, "batch " + (multi ? "multiple policy " + policy : "single"));
+						}
+						cache.put(key, stats);
+					}
+					lines.add("{\"file\":" + JsonLinesResultsWriter.quote(filename) + stats);
+					result.stats.add(sim.getStats());
+				}
+			}
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			result.fail(filename, "File not found");
+		} catch (IOException e) {
+			result.fail(filename, "Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			result.fail(filename, "Could not read the file: " + e.getCause().getMessage());
+		} catch (RuntimeException e) {
+			//bad data, or a store that can't be simulated such as one with no counters
+			result.fail(filename, "Bad simulation data: " + e.getMessage());
+		}
+		return result;
+	}
+
+	/**
+	 * Describes the stats of a finished simulation as one line of JSON
+	 * @param filename the file with the simulation data
+	 * @param simName the name of the simulation
+	 * @param numWindows the number of counters
+	 * @param multi true if there was a line per counter, false for a single line
+	 * @param sim the store after the simulation finished
+	 * @return the line of JSON
+	 */
+	public static String toJson(String filename, String simName, int numWindows, boolean multi, Store sim) {
+		return "{\"file\":" + JsonLinesResultsWriter.quote(filename) + statsJson(simName, numWindows, multi, sim);
+	}
+
+	/**
+	 * Describes the stats of a finished simulation as the part of its line of JSON after
+	 * the file name, which is all that depends on the file's contents
+	 */
+	private static String statsJson(String simName, int numWindows, boolean multi, Store sim) {
+		SimulationContext context = sim.getContext();
+		LatencyHistogram waits = sim.getWaitHistogram();
+		LatencyHistogram checkOuts = sim.getCheckOutHistogram();
+		return ",\"name\":" + JsonLinesResultsWriter.quote(simName)
+				+ ",\"counters\":" + numWindows
+				+ ",\"layout\":\"" + (multi ? "multiple" : "single") + "\""
+				+ ",\"arrived\":" + context.getCustomersArrived()
+				+ ",\"checkedOut\":" + sim.getTotalCustomersCheckedOut()
+				+ ",\"averageWait\":" + context.getAverageWaitTime()
+				+ ",\"maxWait\":" + context.getMaxWaitTime()
+				+ ",\"waitP50\":" + waits.getPercentile(50)
+				+ ",\"waitP90\":" + waits.getPercentile(90)
+				+ ",\"waitP99\":" + waits.getPercentile(99)
+				+ ",\"averageCheckOut\":" + context.getAverageCheckOutTime()
+				+ ",\"checkOutP99\":" + checkOuts.getPercentile(99)
+				+ ",\"maxLineLength\":" + sim.getMaxLineLength() + "}";
+	}
+
+	private static String errorJson(String filename, String message) {
+		return "{\"file\":" + JsonLinesResultsWriter.quote(filename) + ",\"error\":"
+				+ JsonLinesResultsWriter.quote(message) + "}";
+	}
+
+	/**
+	 * Simulates every file on the thread pool and writes the results in the order the
+	 * files were given as soon as each one and the files before it are done
+	 * @param out where to write the results
+	 * @return the number of files that could not be simulated
+	 * @throws IOException if the stats or customers file cannot be written
+	 * @throws InterruptedException if the batch is interrupted while waiting
+	 */
+	public int run(PrintStream out) throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try (ResultsWriter statsOut = statsFile == null ? null : ResultsWriter.open(statsFile);
+				ResultsWriter customersOut = customersFile == null ? null : ResultsWriter.open(customersFile)) {
+			customers = customersOut;
+			List<Future<FileResult>> runs = new ArrayList<Future<FileResult>>();
+			for(String filename : files) {
+				runs.add(pool.submit(() -> simulateFile(filename)));
+			}
+			int failures = 0;
+			for(int f = 0; f < runs.size(); f++) {
+				FileResult result;
+				try {
+					result = runs.get(f).get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+				for(String line : result.lines) {
+					out.println(line);
+				}
+				if(result.failed) {
+					failures++;
+				}
+				if(statsOut != null) {
+					for(StoreStats stats : result.stats) {
+						statsOut.writeStats(files.get(f), stats);
+					}
+				}
+			}
+			out.flush();
+			return failures;
+		} finally {
+			pool.shutdownNow();
+			customers = null;
+		}
+	}
+
+	public static void main(String[] args) {
+		BatchSimulator batch = new BatchSimulator();
+		try {
+			batch.parseArgs(args);
+		} catch (IOException e) {
+			System.out.println("Could not read the folder: " + e.getMessage());
+			return;
+		}
+		if(batch.files.isEmpty()) {
+			System.out.println("Usage: java BatchSimulator [--layout single|multiple|both] [--engine event|tick]"
+					+ " [--policy name] [--threads N] [--out file] [--cache dir] [--cache-size MB]"
+					+ " [--stats file] [--customers file] file|glob...");
+			return;
+		}
+		int failures;
+		try {
+			if(batch.outFile == null) {
+				failures = batch.run(System.out);
+			} else {
+				try (PrintStream out = new PrintStream(batch.outFile, "UTF-8")) {
+					failures = batch.run(out);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write the results: " + e.getMessage());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if(failures > 0) {
+			System.err.println(failures + " of " + batch.files.size() + " files could not be simulated");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Describes the compact binary format for simulation data. A binary trace holds
+ * the same things as a text simulation data file in far fewer bytes:
+ *
+ * <pre>
+ *   magic     4 bytes  "LSTR"
+ *   version   1 byte   the format version, currently 1
+ *   name      the simulation name as a varint length and UTF-8 bytes
+ *   minutes   varint
+ *   counters  varint
+ *   records   until the end of the file, one per customer:
+ *             zigzag varint of the time minus the previous customer's time
+ *             zigzag varint of the number of items
+ * </pre>
+ *
+ * Varints store 7 bits per byte with the high bit set on every byte but the
+ * last. Zigzag encoding keeps small negative numbers small, so customers that
+ * are listed out of order still take only a byte or two.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class BinaryTrace {
+	public static final byte[] MAGIC = {'L', 'S', 'T', 'R'};
+	public static final int VERSION = 1;
+	/** The bytes it takes to tell a binary trace from a text file: the magic and the version */
+	public static final int START_LENGTH = MAGIC.length + 1;
+
+	private BinaryTrace() {
+	}
+
+	/**
+	 * Encodes a number so that small negative numbers are small positive ones
+	 * @param value the number to encode
+	 * @return the encoded number
+	 */
+	public static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Decodes a number encoded by zigzag
+	 * @param value the encoded number
+	 * @return the original number
+	 */
+	public static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Determines if the start of a file is the start of a binary trace. Besides the
+	 * magic, the version byte has to be a control character that no text file has
+	 * there, so a text file whose name line starts with LSTR is still read as text.
+	 * @param start the first START_LENGTH bytes of the file
+	 * @param length how many of the bytes were read
+	 * @return true if the file is a binary trace, false otherwise
+	 */
+	public static boolean isBinaryTrace(byte[] start, int length) {
+		if(length < START_LENGTH) {
+			return false;
+		}
+		for(int i = 0; i < MAGIC.length; i++) {
+			if(start[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		//below tab, so not a character or whitespace of a text file
+		int version = start[MAGIC.length] & 0xff;
+		return version > 0 && version < '\t';
+	}
+}
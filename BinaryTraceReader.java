@@ -0,0 +1,170 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+/**
+ * Reads a binary trace, described in BinaryTrace, one customer at a time as the
+ * simulation asks for them. There is no text to parse, so a trace is read much
+ * faster than the same customers in a text file.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class BinaryTraceReader implements ArrivalSource {
+	private final String filename;
+	private final InputStream in;
+	private final byte[] buffer;
+	private int position;
+	private int length;
+	private long record;
+	private String simName;
+	private int mins;
+	private int numWindows;
+	private int time;
+	private int numItems;
+
+	/**
+	 * Opens a binary trace and reads its header
+	 * @param filename the file with the trace
+	 * @throws IOException if the file does not exist, cannot be read or is not a binary trace
+	 */
+	public BinaryTraceReader(String filename) throws IOException {
+		this.filename = filename;
+		this.in = new FileInputStream(filename);
+		this.buffer = new byte[64 << 10];
+		this.position = 0;
+		this.length = 0;
+		this.record = 0;
+		this.time = 0;
+		this.numItems = -1;
+		try {
+			readHeader();
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next byte of the file
+	 * @return the next byte or -1 at the end of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	private int read() throws IOException {
+		if(position == length) {
+			length = in.read(buffer);
+			position = 0;
+			if(length <= 0) {
+				length = 0;
+				return -1;
+			}
+		}
+		return buffer[position++] & 0xff;
+	}
+
+	/**
+	 * Reads a varint
+	 * @param first the first byte of the varint
+	 * @return the number, treated as unsigned
+	 * @throws IOException if the file cannot be read or the varint is cut off
+	 */
+	private int readVarint(int first) throws IOException {
+		int value = first & 0x7f;
+		int shift = 7;
+		int b = first;
+		while((b & 0x80) != 0) {
+			b = read();
+			if(b < 0 || shift > 28) {
+				throw new InputMismatchException(filename + " record " + record + ": cut off");
+			}
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		}
+		return value;
+	}
+
+	/**
+	 * Reads a varint that must be there
+	 * @return the number, treated as unsigned
+	 * @throws IOException if the file cannot be read or ends
+	 */
+	private int readVarint() throws IOException {
+		int b = read();
+		if(b < 0) {
+			throw new InputMismatchException(filename + " record " + record + ": cut off");
+		}
+		return readVarint(b);
+	}
+
+	/**
+	 * Checks the magic and version and reads the simulation settings
+	 * @throws IOException if the file cannot be read or is not a binary trace
+	 */
+	private void readHeader() throws IOException {
+		byte[] start = new byte[BinaryTrace.START_LENGTH];
+		int read = 0;
+		for(int b; read < start.length && (b = read()) >= 0; read++) {
+			start[read] = (byte) b;
+		}
+		if(!BinaryTrace.isBinaryTrace(start, read)) {
+			throw new IOException(filename + " is not a binary trace");
+		}
+		int version = start[BinaryTrace.MAGIC.length] & 0xff;
+		if(version != BinaryTrace.VERSION) {
+			throw new IOException(filename + " has unsupported trace version " + version);
+		}
+		byte[] name = new byte[readVarint()];
+		for(int i = 0; i < name.length; i++) {
+			int b = read();
+			if(b < 0) {
+				throw new InputMismatchException(filename + " header: cut off");
+			}
+			name[i] = (byte) b;
+		}
+		simName = new String(name, StandardCharsets.UTF_8);
+		mins = readVarint();
+		numWindows = readVarint();
+	}
+
+	public String getName() {
+		return simName;
+	}
+
+	public int getMinutes() {
+		return mins;
+	}
+
+	public int getNumWindows() {
+		return numWindows;
+	}
+
+	public boolean next() {
+		try {
+			int b = read();
+			if(b < 0) {
+				return false;
+			}
+			record++;
+			time += BinaryTrace.unzigzag(readVarint(b));
+			numItems = BinaryTrace.unzigzag(readVarint());
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(filename + ": " + e.getMessage(), e);
+		}
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getNumItems() {
+		return numItems;
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,110 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+/**
+ * Writes simulation data in the binary trace format described in BinaryTrace.
+ * Customers are written one at a time as they are given, so a trace of any size
+ * can be written in constant memory.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class BinaryTraceWriter implements Closeable {
+	private final OutputStream out;
+	private final byte[] buffer;
+	private int length;
+	private int previousTime;
+	private long bytesWritten;
+
+	/**
+	 * Creates a binary trace and writes its header
+	 * @param filename the file to write
+	 * @param simName the name of the simulation
+	 * @param mins the number of minutes the simulation runs
+	 * @param numWindows the number of counters that are open
+	 * @throws IOException if the file cannot be written
+	 */
+	public BinaryTraceWriter(String filename, String simName, int mins, int numWindows) throws IOException {
+		this.out = new FileOutputStream(filename);
+		this.buffer = new byte[64 << 10];
+		this.length = 0;
+		this.previousTime = 0;
+		byte[] name = simName.getBytes(StandardCharsets.UTF_8);
+		for(byte b : BinaryTrace.MAGIC) {
+			writeByte(b);
+		}
+		writeByte(BinaryTrace.VERSION);
+		writeVarint(name.length);
+		for(byte b : name) {
+			writeByte(b);
+		}
+		writeVarint(mins);
+		writeVarint(numWindows);
+	}
+
+	/**
+	 * Adds a byte to the file
+	 * @param b the byte to add
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeByte(int b) throws IOException {
+		if(length == buffer.length) {
+			flush();
+		}
+		buffer[length++] = (byte) b;
+	}
+
+	/**
+	 * Adds a number to the file as a varint
+	 * @param value the number to add, treated as unsigned
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeVarint(int value) throws IOException {
+		while((value & ~0x7f) != 0) {
+			writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		writeByte(value);
+	}
+
+	/**
+	 * Writes the buffered bytes to the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private void flush() throws IOException {
+		out.write(buffer, 0, length);
+		bytesWritten += length;
+		length = 0;
+	}
+
+	/**
+	 * Adds a customer to the trace
+	 * @param time the time the customer arrives
+	 * @param numItems the number of items the customer has
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(int time, int numItems) throws IOException {
+		writeVarint(BinaryTrace.zigzag(time - previousTime));
+		writeVarint(BinaryTrace.zigzag(numItems));
+		previousTime = time;
+	}
+
+	/**
+	 * Gets the size of the trace so far
+	 * @return the number of bytes written, including those not yet flushed
+	 */
+	public long size() {
+		return bytesWritten + length;
+	}
+
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+}
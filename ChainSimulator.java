@@ -0,0 +1,453 @@
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+/**
+ * Simulates a whole chain of stores in one run and rolls their results up into
+ * chain-wide stats. The stores are listed in a manifest, one per line:
+ *
+ *   file single|multiple [counters] [policy]
+ *
+ * where counters is the number of counters to open (the number in the file if it
+ * is left out) and policy is the dispatch policy for a line per counter (shortest
+ * if it is left out). Blank lines and lines starting with # are skipped. Relative
+ * file names are relative to the manifest's folder.
+ *
+ * Every store is simulated on its own on a work-stealing pool, biggest data file
+ * first so the long stores do not end up running alone at the end. Each store
+ * reads its customers from its file as it goes, and when it finishes it is boiled
+ * down to a Rollup of totals and wait histograms that is merged into the chain's
+ * Rollup straight away. Only the stores being simulated at the moment are held in
+ * memory, however many stores the chain has.
+ *
+ * Usage: java ChainSimulator manifest [--threads N] [--out file]
+ *
+ * One line of JSON per store is written (to --out if it is given) in the order the
+ * stores finish, and the chain's stats are printed at the end.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ChainSimulator {
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String outFile = null;
+
+	/**
+	 * One store of the chain as listed in the manifest
+	 */
+	public static class Shard {
+		private final String file;
+		private final boolean multi;
+		private final int numWindows;
+		private final String policy;
+		private final long size;
+
+		/**
+		 * Creates a store of the chain
+		 * @param file the file with the simulation data
+		 * @param multi true if there is a line per counter, false for a single line
+		 * @param numWindows the number of counters, or 0 to use the number in the file
+		 * @param policy the dispatch policy for a line per counter
+		 */
+		public Shard(String file, boolean multi, int numWindows, String policy) {
+			this.file = file;
+			this.multi = multi;
+			this.numWindows = numWindows;
+			this.policy = policy;
+			long size;
+			try {
+				size = Files.size(Paths.get(file));
+			} catch (IOException e) {
+				//reported when the store is simulated
+				size = 0;
+			}
+			this.size = size;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets the size of the data file, which is how long the store is expected to take
+		 * @return the size of the file in bytes, 0 if it could not be found
+		 */
+		public long getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * Totals and wait distributions of one or more stores. A rollup of a single store
+	 * is made as soon as it finishes, and rollups can be merged in any order.
+	 */
+	public static class Rollup {
+		private int stores;
+		private int failures;
+		private long arrived;
+		private long served;
+		private long totalWaitTime;
+		private int maxWaitTime;
+		private long checkedOut;
+		private long totalCheckOutTime;
+		private long idleTime;
+		private long counterTime;
+		private final LatencyHistogram waitTimes = new LatencyHistogram();
+		private final LatencyHistogram checkOutTimes = new LatencyHistogram();
+
+		/**
+		 * Adds a finished store
+		 * @param sim the store after its simulation finished
+		 */
+		public void add(Store sim) {
+			SimulationContext context = sim.getContext();
+			stores++;
+			arrived += context.getCustomersArrived();
+			served += context.getCustomersServed();
+			totalWaitTime += context.getTotalWaitTime();
+			maxWaitTime = Math.max(maxWaitTime, context.getMaxWaitTime());
+			checkedOut += context.getCustomersCheckedOut();
+			totalCheckOutTime += context.getTotalCheckOutTime();
+			idleTime += sim.getTotalIdleTime();
+			counterTime += (long) sim.getNumCounters() * context.getClock().getTime();
+			waitTimes.merge(sim.getWaitHistogram());
+			checkOutTimes.merge(sim.getCheckOutHistogram());
+		}
+
+		/**
+		 * Counts a store that could not be simulated
+		 */
+		public void addFailure() {
+			failures++;
+		}
+
+		/**
+		 * Adds everything in another rollup to this one
+		 * @param other the rollup to add
+		 */
+		public void merge(Rollup other) {
+			stores += other.stores;
+			failures += other.failures;
+			arrived += other.arrived;
+			served += other.served;
+			totalWaitTime += other.totalWaitTime;
+			maxWaitTime = Math.max(maxWaitTime, other.maxWaitTime);
+			checkedOut += other.checkedOut;
+			totalCheckOutTime += other.totalCheckOutTime;
+			idleTime += other.idleTime;
+			counterTime += other.counterTime;
+			waitTimes.merge(other.waitTimes);
+			checkOutTimes.merge(other.checkOutTimes);
+		}
+
+		/**
+		 * Writes the rollup so it can be sent to another program
+		 * @param out where to write the rollup
+		 * @throws IOException if it cannot be written
+		 */
+		public void writeState(DataOutput out) throws IOException {
+			out.writeInt(stores);
+			out.writeInt(failures);
+			out.writeLong(arrived);
+			out.writeLong(served);
+			out.writeLong(totalWaitTime);
+			out.writeInt(maxWaitTime);
+			out.writeLong(checkedOut);
+			out.writeLong(totalCheckOutTime);
+			out.writeLong(idleTime);
+			out.writeLong(counterTime);
+			waitTimes.writeState(out);
+			checkOutTimes.writeState(out);
+		}
+
+		/**
+		 * Replaces the contents of the rollup with ones written by writeState
+		 * @param in where to read the rollup from
+		 * @throws IOException if it cannot be read
+		 */
+		public void readState(DataInput in) throws IOException {
+			stores = in.readInt();
+			failures = in.readInt();
+			arrived = in.readLong();
+			served = in.readLong();
+			totalWaitTime = in.readLong();
+			maxWaitTime = in.readInt();
+			checkedOut = in.readLong();
+			totalCheckOutTime = in.readLong();
+			idleTime = in.readLong();
+			counterTime = in.readLong();
+			waitTimes.readState(in);
+			checkOutTimes.readState(in);
+		}
+
+		/**
+		 * Gets the number of stores that were simulated, not counting the ones that failed
+		 * @return the number of stores simulated
+		 */
+		public int getStores() {
+			return stores;
+		}
+
+		public int getFailures() {
+			return failures;
+		}
+
+		public long getArrived() {
+			return arrived;
+		}
+
+		public long getCheckedOut() {
+			return checkedOut;
+		}
+
+		public int getMaxWaitTime() {
+			return maxWaitTime;
+		}
+
+		/**
+		 * Gets the average wait in line across every store, measured from entering the line
+		 * @return the average wait or 0 if no customer left a line
+		 */
+		public double getAverageWaitTime() {
+			return served == 0 ? 0.0 : (double) totalWaitTime / served;
+		}
+
+		/**
+		 * Gets the average check out time across every store
+		 * @return the average check out time or 0 if no customer finished
+		 */
+		public double getAverageCheckOutTime() {
+			return checkedOut == 0 ? 0.0 : (double) totalCheckOutTime / checkedOut;
+		}
+
+		/**
+		 * Gets the fraction of the counters' time across every store that they had a customer
+		 * @return the utilization from 0 to 1
+		 */
+		public double getUtilization() {
+			return counterTime == 0 ? 0.0 : 1.0 - (double) idleTime / counterTime;
+		}
+
+		public LatencyHistogram getWaitTimes() {
+			return waitTimes;
+		}
+
+		public LatencyHistogram getCheckOutTimes() {
+			return checkOutTimes;
+		}
+	}
+
+	/**
+	 * The result of one store: its line of JSON and its rollup
+	 */
+	private static class ShardResult {
+		private final String json;
+		private final Rollup rollup;
+
+		private ShardResult(String json, Rollup rollup) {
+			this.json = json;
+			this.rollup = rollup;
+		}
+	}
+
+	/**
+	 * Reads the stores of the chain from a manifest
+	 * @param filename the manifest
+	 * @return the stores in the order they are listed
+	 * @throws IOException if the manifest cannot be read
+	 * @throws InputMismatchException if a line of the manifest is not a store
+	 */
+	public static List<Shard> readManifest(String filename) throws IOException {
+		Path dir = Paths.get(filename).toAbsolutePath().getParent();
+		List<Shard> shards = new ArrayList<Shard>();
+		try (BufferedReader in = new BufferedReader(new FileReader(filename))) {
+			String line;
+			int number = 0;
+			while((line = in.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] parts = line.split("\\s+");
+				if(parts.length < 2 || parts.length > 4
+						|| !(parts[1].equals("single") || parts[1].equals("multiple"))) {
+					throw new InputMismatchException("line " + number + " should be: file single|multiple [counters] [policy]");
+				}
+				int numWindows = 0;
+				String policy = "shortest";
+				try {
+					if(parts.length > 2) {
+						numWindows = Integer.parseInt(parts[2]);
+					}
+					if(parts.length > 3) {
+						policy = parts[3];
+						DispatchPolicy.forName(policy, 1);
+					}
+				} catch (IllegalArgumentException e) {
+					throw new InputMismatchException("line " + number + ": " + e.getMessage());
+				}
+				if(parts.length > 2 && numWindows < 1) {
+					throw new InputMismatchException("line " + number + ": the number of counters must be positive");
+				}
+				String file = dir == null ? parts[0] : dir.resolve(parts[0]).normalize().toString();
+				shards.add(new Shard(file, parts[1].equals("multiple"), numWindows, policy));
+			}
+		}
+		return shards;
+	}
+
+	/**
+	 * Simulates one store and boils it down to its line of JSON and its rollup
+	 * @param shard the store to simulate
+	 * @return the results of the store
+	 */
+	private static ShardResult simulate(Shard shard) {
+		Rollup rollup = new Rollup();
+		String error;
+		try (ArrivalSource source = ArrivalSource.open(shard.file)) {
+			int numWindows = shard.numWindows > 0 ? shard.numWindows : source.getNumWindows();
+			Store sim = new Store(numWindows, shard.multi, new SimulationContext(),
+					DispatchPolicy.forName(shard.policy, 1));
+			new EventSimulator(sim).run(source, source.getMinutes()*60);
+			rollup.add(sim);
+			return new ShardResult(BatchSimulator.toJson(shard.file, source.getName(), numWindows, shard.multi, sim),
+					rollup);
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			error = "File not found";
+		} catch (IOException e) {
+			error = "Could not read the file: " + e.getMessage();
+		} catch (UncheckedIOException e) {
+			error = "Could not read the file: " + e.getCause().getMessage();
+		} catch (RuntimeException e) {
+			//bad data, or a store that can't be simulated such as one with no counters
+			error = "Bad simulation data: " + e.getMessage();
+		}
+		rollup.addFailure();
+		return new ShardResult("{\"file\":" + JsonLinesResultsWriter.quote(shard.file) + ",\"error\":"
+				+ JsonLinesResultsWriter.quote(error) + "}", rollup);
+	}
+
+	/**
+	 * Simulates every store of the chain on the pool, biggest data file first, and
+	 * writes each store's results and merges them into the chain's rollup as soon as
+	 * the store finishes
+	 * @param shards the stores of the chain
+	 * @param out where to write each store's line of JSON
+	 * @return the chain's rollup
+	 * @throws InterruptedException if the run is interrupted while waiting
+	 */
+	public Rollup run(List<Shard> shards, PrintStream out) throws InterruptedException {
+		List<Shard> bySize = new ArrayList<Shard>(shards);
+		bySize.sort((a, b) -> Long.compare(b.size, a.size));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			CompletionService<ShardResult> finished = new ExecutorCompletionService<ShardResult>(pool);
+			for(Shard shard : bySize) {
+				finished.submit(() -> simulate(shard));
+			}
+			Rollup chain = new Rollup();
+			for(int k = 0; k < bySize.size(); k++) {
+				ShardResult result;
+				try {
+					result = finished.take().get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+				out.println(result.json);
+				chain.merge(result.rollup);
+			}
+			out.flush();
+			return chain;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Prints the chain's stats
+	 * @param chain the rollup of every store
+	 */
+	public static void printRollup(Rollup chain) {
+		//the stores that could not be simulated are still listed in the manifest
+		System.out.println("Chain stats: " + (chain.getStores() + chain.getFailures()) + " stores"
+				+ (chain.getFailures() > 0 ? " (" + chain.getFailures() + " could not be simulated)" : ""));
+		System.out.println("--------------------------------------------------------");
+		System.out.println("\tTotal customers arrived: " + chain.getArrived());
+		System.out.println("\tTotal customers checked out: " + chain.getCheckedOut());
+		System.out.printf("\tAverage wait time per customer: %.2f%n", chain.getAverageWaitTime());
+		System.out.println("\tMax wait time: " + chain.getMaxWaitTime());
+		System.out.printf("\tAverage check out time per customer: %.2f%n", chain.getAverageCheckOutTime());
+		System.out.printf("\tCounter utilization: %.2f%%%n", chain.getUtilization() * 100);
+		System.out.println("\tWait time percentiles: " + chain.getWaitTimes().percentiles());
+		System.out.println("\tCheck out time percentiles: " + chain.getCheckOutTimes().percentiles());
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.out.println("Usage: java ChainSimulator manifest [--threads N] [--out file]");
+			return;
+		}
+		ChainSimulator chain = new ChainSimulator();
+		for(int i = 1; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			switch(args[i]) {
+				case "--threads": chain.threads = Integer.parseInt(args[i + 1]); break;
+				case "--out": chain.outFile = args[i + 1]; break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		List<Shard> shards;
+		try {
+			shards = readManifest(args[0]);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+			return;
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+			return;
+		} catch (InputMismatchException e) {
+			System.out.println("Bad manifest: " + e.getMessage());
+			return;
+		}
+		Rollup rollup;
+		try {
+			if(chain.outFile == null) {
+				rollup = chain.run(shards, System.out);
+			} else {
+				try (PrintStream out = new PrintStream(chain.outFile, "UTF-8")) {
+					rollup = chain.run(shards, out);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Could not write the results: " + e.getMessage());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		System.out.println();
+		printRollup(rollup);
+		if(rollup.getFailures() > 0) {
+			System.exit(1);
+		}
+	}
+}
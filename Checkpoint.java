@@ -0,0 +1,168 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+/**
+ * A snapshot of a simulation part way through: the whole state of the store,
+ * along with the simulation data file it was reading and how many customers it
+ * had read from it. A run can carry on from a checkpoint after a crash, or any
+ * number of what-if runs can start from the same checkpoint with more counters
+ * or a different dispatch policy instead of each simulating the start of the day
+ * again.
+ *
+ * The state is kept as bytes, so one checkpoint can be restored many times. On
+ * disk it is gzipped after a short header: the magic bytes "LSCK", the format
+ * version, the data file, the customers read, the time of the checkpoint and the
+ * end time of the run.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class Checkpoint {
+	public static final byte[] MAGIC = {'L', 'S', 'C', 'K'};
+	public static final int VERSION = 1;
+	private final String sourceName;
+	private final long consumed;
+	private final int time;
+	private final int endTime;
+	private final byte[] state;
+
+	/**
+	 * Creates a checkpoint from a store that has already been written out
+	 * @param sourceName the simulation data file the store was reading
+	 * @param consumed the number of customers read from the file so far
+	 * @param time the time the checkpoint was taken
+	 * @param endTime the time the simulation ends
+	 * @param state the store written by Store.writeState
+	 */
+	public Checkpoint(String sourceName, long consumed, int time, int endTime, byte[] state) {
+		this.sourceName = sourceName;
+		this.consumed = consumed;
+		this.time = time;
+		this.endTime = endTime;
+		this.state = state;
+	}
+
+	/**
+	 * Takes a checkpoint of a store between seconds
+	 * @param sim the store
+	 * @param sourceName the simulation data file the store is reading
+	 * @param consumed the number of customers read from the file so far
+	 * @param endTime the time the simulation ends
+	 * @return the checkpoint
+	 */
+	public static Checkpoint capture(Store sim, String sourceName, long consumed, int endTime) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			sim.writeState(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			//writing to memory does not fail
+			throw new IllegalStateException(e);
+		}
+		return new Checkpoint(sourceName, consumed, sim.getContext().getClock().getTime(), endTime,
+				bytes.toByteArray());
+	}
+
+	/**
+	 * Creates a new store with the state from the checkpoint
+	 * @param extraCounters the number of counters to add
+	 * @param policy the dispatch policy to switch to, or null to keep the one in the checkpoint
+	 * @return the store
+	 */
+	public Store restore(int extraCounters, DispatchPolicy policy) {
+		try {
+			return Store.restore(new DataInputStream(new ByteArrayInputStream(state)), extraCounters, policy);
+		} catch (IOException e) {
+			throw new IllegalStateException("Corrupt checkpoint: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Opens the simulation data file again and skips the customers the store has
+	 * already been given
+	 * @return a source positioned at the next customer to give the store
+	 * @throws IOException if the file cannot be read
+	 */
+	public ArrivalSource reopen() throws IOException {
+		ArrivalSource source = ArrivalSource.open(sourceName);
+		for(long i = 0; i < consumed; i++) {
+			if(!source.next()) {
+				source.close();
+				throw new IOException(sourceName + " has fewer customers than the checkpoint read");
+			}
+		}
+		return source;
+	}
+
+	/**
+	 * Writes the checkpoint to a file
+	 * @param filename the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(String filename) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(sourceName);
+			out.writeLong(consumed);
+			out.writeInt(time);
+			out.writeInt(endTime);
+			out.writeInt(state.length);
+			GZIPOutputStream zip = new GZIPOutputStream(out);
+			zip.write(state);
+			zip.finish();
+		}
+	}
+
+	/**
+	 * Reads a checkpoint from a file
+	 * @param filename the file to read
+	 * @return the checkpoint
+	 * @throws IOException if the file cannot be read or is not a checkpoint
+	 */
+	public static Checkpoint read(String filename) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if(!Arrays.equals(magic, MAGIC)) {
+				throw new IOException(filename + " is not a checkpoint");
+			}
+			int version = in.readInt();
+			if(version != VERSION) {
+				throw new IOException(filename + " is checkpoint version " + version + ", expected " + VERSION);
+			}
+			String sourceName = in.readUTF();
+			long consumed = in.readLong();
+			int time = in.readInt();
+			int endTime = in.readInt();
+			byte[] state = new byte[in.readInt()];
+			new DataInputStream(new GZIPInputStream(in)).readFully(state);
+			return new Checkpoint(sourceName, consumed, time, endTime, state);
+		}
+	}
+
+	public String getSourceName() {
+		return sourceName;
+	}
+
+	public long getConsumed() {
+		return consumed;
+	}
+
+	public int getTime() {
+		return time;
+	}
+
+	public int getEndTime() {
+		return endTime;
+	}
+}
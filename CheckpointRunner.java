@@ -0,0 +1,212 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+/**
+ * Runs long simulations with checkpoints so they can be picked up again part way
+ * through. There are three commands:
+ *
+ * run FILE [--layout single|multiple] [--policy P] [--every S] [--dir D]
+ *   simulates the file from the start, writing a checkpoint to the folder every
+ *   S seconds of simulated time.
+ *
+ * resume CHECKPOINT [--add-counters N] [--policy P] [--every S] [--dir D]
+ *   carries on from a checkpoint to the end of the simulation, optionally with
+ *   more counters or a different dispatch policy from that point on.
+ *
+ * whatif CHECKPOINT [--add-counters N1,N2,...] [--policies P1,P2,...]
+ *   runs every combination of extra counters and policy from the same checkpoint
+ *   at the same time and compares them.
+ *
+ * The customers are given to the store as they are read, the same as the live mode,
+ * so a customer listed before the one ahead of it is left out instead of ending the
+ * reading of the file.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class CheckpointRunner {
+	private boolean multi = false;
+	private DispatchPolicy policy = null;
+	private String policyNames = null;
+	private String extraCounters = "0";
+	private int every = 0;
+	private String dir = ".";
+
+	/**
+	 * Simulates the customers from a source until the end time, writing a checkpoint
+	 * every so often if a checkpoint interval is set
+	 * @param sim the store, with its clock where the source picks up
+	 * @param source the customers still to come
+	 * @param sourceName the simulation data file, for the checkpoints
+	 * @param consumed the number of customers read from the file before the source's position
+	 * @param endTime the time the simulation ends
+	 * @throws IOException if a checkpoint cannot be written
+	 */
+	public void simulate(Store sim, ArrivalSource source, String sourceName, long consumed, int endTime)
+			throws IOException {
+		EventSimulator engine = new EventSimulator(sim);
+		int now = sim.getContext().getClock().getTime();
+		int nextCheckpoint = every > 0 ? (now / every + 1) * every : Integer.MAX_VALUE;
+		while(source.next()) {
+			int time = source.getTime();
+			if(time >= endTime) {
+				break;
+			}
+			while(time >= nextCheckpoint) {
+				engine.advanceTo(nextCheckpoint);
+				String filename = new File(dir, "checkpoint-" + nextCheckpoint + ".lsck").getPath();
+				Checkpoint.capture(sim, sourceName, consumed, endTime).write(filename);
+				System.out.println("Wrote " + filename);
+				nextCheckpoint += every;
+			}
+			engine.offer(time, source.getNumItems());
+			consumed++;
+		}
+		engine.advanceTo(endTime);
+	}
+
+	/**
+	 * Prints the stats of a finished simulation
+	 * @param title what was simulated
+	 * @param sim the store after the simulation finished
+	 */
+	private static void printResult(String title, Store sim) {
+		System.out.println();
+		System.out.println("Stats for the simulation: " + title);
+		System.out.println();
+		sim.printStats();
+	}
+
+	/**
+	 * Runs every combination of extra counters and policy from one checkpoint on the pool
+	 * @param checkpoint the checkpoint to start from
+	 * @param pool the pool to run the variants on
+	 * @throws IOException if the data file cannot be read
+	 */
+	public void whatIf(Checkpoint checkpoint, ForkJoinPool pool) throws IOException {
+		//the variants share the file, so none of them write checkpoints
+		every = 0;
+		ArrivalTrace trace = ArrivalTrace.load(checkpoint.getSourceName());
+		String[] names = policyNames == null ? new String[] {null} : policyNames.split(",");
+		List<String> labels = new ArrayList<String>();
+		List<ForkJoinTask<Store>> runs = new ArrayList<ForkJoinTask<Store>>();
+		for(double extra : MonteCarloRunner.parseList(extraCounters)) {
+			for(String name : names) {
+				int added = (int) extra;
+				labels.add("+" + added + " counters" + (name == null ? "" : ", " + name));
+				runs.add(pool.submit(() -> {
+					Store sim = checkpoint.restore(added, name == null ? null : DispatchPolicy.forName(name, 1));
+					ArrivalSource source = trace.replay();
+					for(long i = 0; i < checkpoint.getConsumed(); i++) {
+						source.next();
+					}
+					simulate(sim, source, checkpoint.getSourceName(), checkpoint.getConsumed(), checkpoint.getEndTime());
+					return sim;
+				}));
+			}
+		}
+		System.out.println("What-if runs for " + trace.getName() + " from time " + checkpoint.getTime()
+				+ " to " + checkpoint.getEndTime());
+		System.out.println();
+		System.out.printf("%-28s %12s %14s %10s %16s%n", "Variant", "Checked out", "Average wait", "p95 wait",
+				"Max line length");
+		System.out.println("-----------------------------------------------------------------------------------");
+		for(int i = 0; i < runs.size(); i++) {
+			Store sim = runs.get(i).join();
+			System.out.printf("%-28s %12d %14.2f %10d %16d%n", labels.get(i), sim.getTotalCustomersCheckedOut(),
+					sim.getContext().getAverageWaitTime(), sim.getWaitHistogram().getPercentile(95),
+					sim.getMaxLineLength());
+		}
+	}
+
+	/**
+	 * Reads the options after the command and its file
+	 * @param args the command line arguments
+	 */
+	public void parseArgs(String[] args) {
+		for(int i = 2; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			switch(args[i]) {
+				case "--layout": multi = !value.equals("single"); break;
+				case "--policy": policy = DispatchPolicy.forName(value, 1); break;
+				case "--policies":
+					for(String name : value.split(",")) {
+						DispatchPolicy.forName(name, 1);
+					}
+					policyNames = value;
+					break;
+				case "--add-counters": extraCounters = value; break;
+				case "--every": every = Integer.parseInt(value); break;
+				case "--dir": dir = value; break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			System.out.println("Usage: java CheckpointRunner run FILE [--layout L] [--policy P] [--every S] [--dir D]");
+			System.out.println("       java CheckpointRunner resume CHECKPOINT [--add-counters N] [--policy P] [--every S] [--dir D]");
+			System.out.println("       java CheckpointRunner whatif CHECKPOINT [--add-counters N1,N2] [--policies P1,P2]");
+			return;
+		}
+		CheckpointRunner runner = new CheckpointRunner();
+		runner.parseArgs(args);
+		try {
+			switch(args[0]) {
+				case "run":
+					try (ArrivalSource source = ArrivalSource.open(args[1])) {
+						Store sim = new Store(source.getNumWindows(), runner.multi, new SimulationContext(),
+								runner.policy == null ? new ShortestLinePolicy() : runner.policy);
+						runner.simulate(sim, source, args[1], 0, source.getMinutes()*60);
+						printResult(source.getName(), sim);
+					}
+					break;
+				case "resume": {
+					int added;
+					try {
+						added = Integer.parseInt(runner.extraCounters);
+					} catch (NumberFormatException e) {
+						System.out.println("Usage: java CheckpointRunner resume CHECKPOINT [--add-counters N] [--policy P] [--every S] [--dir D]");
+						System.out.println("resume adds one number of counters, not " + runner.extraCounters);
+						return;
+					}
+					Checkpoint checkpoint = Checkpoint.read(args[1]);
+					Store sim = checkpoint.restore(added, runner.policy);
+					try (ArrivalSource source = checkpoint.reopen()) {
+						runner.simulate(sim, source, checkpoint.getSourceName(), checkpoint.getConsumed(),
+								checkpoint.getEndTime());
+						printResult(source.getName(), sim);
+					}
+					break;
+				}
+				case "whatif": {
+					ForkJoinPool pool = new ForkJoinPool();
+					runner.whatIf(Checkpoint.read(args[1]), pool);
+					pool.shutdown();
+					break;
+				}
+				default:
+					System.out.println("Unknown command " + args[0]);
+			}
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+		}
+	}
+}
@@ -30,4 +30,15 @@ public class Clock {
 	public void incrementTime() {
 		this.time++;
 	}
+	
+	/**
+	 * Moves the time in the simulation forward to the given time
+	 * @param time the time to move to, which cannot be before the current time
+	 */
+	public void advanceTo(int time) {
+		if (time < this.time) {
+			throw new IllegalArgumentException("The clock cannot move backwards");
+		}
+		this.time = time;
+	}
 }
@@ -1,35 +1,51 @@
-import java.util.Queue;
-import java.util.LinkedList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
+/**
+ * Represents a checkout counter that is fed customers by a line. The customer
+ * currently at the counter is kept as plain values copied from the line instead
+ * of a Customer object.
+ * 
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ */
 public class Counter {
     private static final int PAYMENT_TIME = 40;
     private static final int ITEM_TIME = 7;
     private int number;
-    private Queue<Customer> queue;
-    private Customer currentCustomer;
+    private boolean hasCurrentCustomer;
+    private int currentArrivalTime;
+    private int currentEnterTime;
+    private int currentNumItems;
+    private int currentId;
+    private SimulationContext context;
     private Clock clock;
     private int idleTime;
+    private int idleSince;
     private int customersFinished;
     private int timeCheckingOut;
     private int counterNumber;
     private int totalWaitTime;
     private int customerAssignedTime;
     private Line line;
+    private final LatencyHistogram checkOutTimes = new LatencyHistogram();
     
     
     /**
 	 * Creates a new counter that initially does not have a customer
 	 * @param num the counter number
 	 * @param l the line that feeds the counter
-	 * @param c the clock for the simulation
+	 * @param context the simulation the counter belongs to
 	 */
     
-    public Counter(int num, Line l, Clock c) {
+    public Counter(int num, Line l, SimulationContext context) {
     	number = num;
-        queue = new LinkedList<>();
-        currentCustomer = null;
-        clock = c;
+        hasCurrentCustomer = false;
+        this.context = context;
+        clock = context.getClock();
         idleTime = 0;
+        idleSince = clock.getTime();
         customersFinished = 0;
         timeCheckingOut = 0;
         totalWaitTime=0;
@@ -51,6 +67,15 @@ public class Counter {
 	 */
     
 
+    /**
+	 * Determines how long a customer with the given number of items takes to check out
+	 * @param numItems the number of items the customer has
+	 * @return the number of seconds it takes to check out
+	 */
+    public static int getCheckOutTime(int numItems) {
+        return numItems * ITEM_TIME + PAYMENT_TIME;
+    }
+
     /**
 	 * Determines the time the customer will be finished checking out. The time
 	 * a customer is finished checking out is determined by adding the product 
@@ -59,11 +84,11 @@ public class Counter {
 	 * @return the time the customer will be finished checking out or -1 if
 	 * there is not current a customer at the counter
 	 */
-    private int getCustomerFinishTime() {
-        if (currentCustomer != null) {
-            int items = currentCustomer.getNumItems();
+    public int getCustomerFinishTime() {
+        if (hasCurrentCustomer) {
+            int items = currentNumItems;
             int checkoutTime = items * ITEM_TIME;
-            int finishTime = currentCustomer.getEnterTime() + checkoutTime + PAYMENT_TIME;
+            int finishTime = currentEnterTime + checkoutTime + PAYMENT_TIME;
             return finishTime;
         } else {
             return -1;
@@ -75,12 +100,18 @@ public class Counter {
 	 * so, it removes the customer from the counter.
 	 */
     private void updateCurrentCustomer() {
-        if (currentCustomer != null) {
+        if (hasCurrentCustomer) {
             int finishTime = getCustomerFinishTime();
             if (finishTime == clock.getTime()) {
-                timeCheckingOut += finishTime - currentCustomer.getEnterTime();
-                currentCustomer.getExitTime();
-                currentCustomer = null;
+                timeCheckingOut += finishTime - currentEnterTime;
+                context.recordCheckOut(finishTime - currentEnterTime);
+                CustomerObserver observer = context.getCustomerObserver();
+                if (observer != null) {
+                    observer.customerFinished(currentId, currentEnterTime, customerAssignedTime, finishTime, number);
+                }
+                checkOutTimes.record(finishTime - currentEnterTime);
+                hasCurrentCustomer = false;
+                idleSince = finishTime;
                 customersFinished++;
             }
         }
@@ -94,12 +125,18 @@ public class Counter {
 	 * 
 	 */
     public void updateCounter() {
-        if (currentCustomer == null) {
+        if (!hasCurrentCustomer) {
             // if there is no current customer, assign the next customer from the line
-            currentCustomer = line.getNextCustomer();
-            if (currentCustomer != null) {
+            if (line.hasNextCustomer()) {
+                currentArrivalTime = line.getNextArrivalTime();
+                currentEnterTime = line.getNextEnterTime();
+                currentNumItems = line.getNextNumItems();
+                currentId = line.getNextId();
+                line.removeNextCustomer();
+                hasCurrentCustomer = true;
+                idleTime += clock.getTime() - idleSince;
                 customerAssignedTime = clock.getTime();
-                totalWaitTime += clock.getTime() - currentCustomer.getArrivalTime();
+                totalWaitTime += clock.getTime() - currentArrivalTime;
             }
         } else {
             // if there is a current customer, check if they are finished checking out
@@ -111,7 +148,7 @@ public class Counter {
 	 * @return true if there is a customer at the counter, false otherwise
 	 */
     public boolean hasCustomer() {
-        return currentCustomer != null;
+        return hasCurrentCustomer;
     }
     /**
 	 * Returns the number of customers that have finished checking out
@@ -124,7 +161,7 @@ public class Counter {
 	 * Finishes sales for any customers that finished as the simulation ended
 	 */
     public void cleanUp() {
-        while (currentCustomer != null) {
+        while (hasCurrentCustomer) {
             updateCurrentCustomer();
         }
     }
@@ -133,10 +170,10 @@ public class Counter {
 	 * @return the time spent checking out by the customers who have completing checking out
 	 */
     public int getTimeCheckingOut() {
-        if (currentCustomer == null) {
+        if (!hasCurrentCustomer) {
             return 0;
         }
-        return clock.getTime() - currentCustomer.getArrivalTime();
+        return clock.getTime() - currentArrivalTime;
     }
     /**
 	 * Prints the stats of the counter after cleaning up for the end of the simulation. 
@@ -145,9 +182,10 @@ public class Counter {
 	 * time the counter was idle and the number of seconds it was idle 
 	 */
     public String getStats() {
-        double idlePercent = (double)idleTime / clock.getTime() * 100;
+        int idle = getIdleTime();
+        double idlePercent = (double)idle / clock.getTime() * 100;
         String stats = String.format("Counter %d: Customers Finished = %d, Has Customer = %b, Idle Time = %d (%.2f%%)\n",
-            number, customersFinished, hasCustomer(), idleTime, idlePercent);
+            number, customersFinished, hasCustomer(), idle, idlePercent);
         return stats;
     }
     
@@ -158,8 +196,25 @@ public class Counter {
         return counterNumber;
     }
     
+    /**
+	 * Gets the histogram of the check out times of the customers who finished at this counter
+	 * @return the histogram of check out times
+	 */
+    public LatencyHistogram getCheckOutHistogram() {
+        return checkOutTimes;
+    }
+    
+    /**
+	 * Gets the number of seconds the counter has been without a customer so far. The
+	 * counter is not updated while it is idle, so the time since it last finished
+	 * with a customer is added on when it is asked.
+	 * @return the number of seconds the counter has been idle
+	 */
     public int getIdleTime(){
-    	return idleTime;
+        if (hasCurrentCustomer) {
+            return idleTime;
+        }
+        return idleTime + clock.getTime() - idleSince;
     }
 
     public int getTotalWait() {
@@ -167,20 +222,77 @@ public class Counter {
     }
     
     public boolean isQueueEmpty() {
-        return queue.isEmpty();
+        return !line.hasNextCustomer();
     }
     
     public boolean isFinished() {
-        return this.currentCustomer == null;
+        return !this.hasCurrentCustomer;
+    }
+
+    /**
+	 * Writes the customer at the counter and the counter's totals for a checkpoint
+	 * @param out where to write the counter
+	 * @throws IOException if it cannot be written
+	 */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(hasCurrentCustomer);
+        out.writeInt(currentArrivalTime);
+        out.writeInt(currentEnterTime);
+        out.writeInt(currentNumItems);
+        out.writeInt(currentId);
+        out.writeInt(idleTime);
+        out.writeInt(idleSince);
+        out.writeInt(customersFinished);
+        out.writeInt(timeCheckingOut);
+        out.writeInt(counterNumber);
+        out.writeInt(totalWaitTime);
+        out.writeInt(customerAssignedTime);
+        checkOutTimes.writeState(out);
+    }
+
+    /**
+	 * Replaces the customer at the counter and the counter's totals with ones written by writeState
+	 * @param in where to read the counter from
+	 * @throws IOException if it cannot be read
+	 */
+    public void readState(DataInput in) throws IOException {
+        hasCurrentCustomer = in.readBoolean();
+        currentArrivalTime = in.readInt();
+        currentEnterTime = in.readInt();
+        currentNumItems = in.readInt();
+        currentId = in.readInt();
+        idleTime = in.readInt();
+        idleSince = in.readInt();
+        customersFinished = in.readInt();
+        timeCheckingOut = in.readInt();
+        counterNumber = in.readInt();
+        totalWaitTime = in.readInt();
+        customerAssignedTime = in.readInt();
+        checkOutTimes.readState(in);
     }
 
     public Customer releaseCounter() {
-        Customer finishedCustomer = this.currentCustomer;
-        this.currentCustomer = null;
+        if (!this.hasCurrentCustomer) {
+            return null;
+        }
+        Customer finishedCustomer = new Customer(clock, currentArrivalTime, currentEnterTime, currentNumItems, currentId);
+        this.hasCurrentCustomer = false;
+        this.idleSince = clock.getTime();
         return finishedCustomer;
     }
     public void assignCustomer(Customer customer) {
-        this.currentCustomer = customer;
+        if (!this.hasCurrentCustomer && customer != null) {
+            this.idleTime += clock.getTime() - idleSince;
+        } else if (this.hasCurrentCustomer && customer == null) {
+            this.idleSince = clock.getTime();
+        }
+        this.hasCurrentCustomer = customer != null;
+        if (customer != null) {
+            this.currentArrivalTime = customer.getArrivalTime();
+            this.currentEnterTime = customer.getEnterTime();
+            this.currentNumItems = customer.getNumItems();
+            this.currentId = customer.getPositionInLine();
+        }
         //this.customerAssignedTime = clock.getTime();
     }
     
@@ -0,0 +1,89 @@
+/**
+ * Holds the stats of one counter at a point in the simulation, so they can be
+ * kept or written out after the store moves on. The check out time is measured
+ * from the time a customer entered the line to the time they finished.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class CounterStats {
+	private final int counter;
+	private final int customersFinished;
+	private final boolean busy;
+	private final int idleTime;
+	private final double utilization;
+	private final double averageCheckOutTime;
+	private final long checkOutP50;
+	private final long checkOutP90;
+	private final long checkOutP99;
+	private final long checkOutP999;
+
+	/**
+	 * Records the stats of a counter as they are now
+	 * @param counter the position of the counter in the store
+	 * @param c the counter
+	 * @param time the current time of the simulation
+	 */
+	public CounterStats(int counter, Counter c, int time) {
+		LatencyHistogram checkOuts = c.getCheckOutHistogram();
+		this.counter = counter;
+		this.customersFinished = c.getCustomersFinished();
+		this.busy = c.hasCustomer();
+		this.idleTime = c.getIdleTime();
+		this.utilization = time == 0 ? 0.0 : 1.0 - (double) idleTime / time;
+		this.averageCheckOutTime = checkOuts.getMean();
+		this.checkOutP50 = checkOuts.getPercentile(50);
+		this.checkOutP90 = checkOuts.getPercentile(90);
+		this.checkOutP99 = checkOuts.getPercentile(99);
+		this.checkOutP999 = checkOuts.getPercentile(99.9);
+	}
+
+	public int getCounter() {
+		return counter;
+	}
+
+	public int getCustomersFinished() {
+		return customersFinished;
+	}
+
+	/**
+	 * Returns whether the counter had a customer
+	 * @return true if the counter was checking out a customer, false if it was idle
+	 */
+	public boolean isBusy() {
+		return busy;
+	}
+
+	public int getIdleTime() {
+		return idleTime;
+	}
+
+	/**
+	 * Gets the fraction of the time so far that the counter had a customer
+	 * @return the utilization from 0 to 1
+	 */
+	public double getUtilization() {
+		return utilization;
+	}
+
+	public double getAverageCheckOutTime() {
+		return averageCheckOutTime;
+	}
+
+	public long getCheckOutP50() {
+		return checkOutP50;
+	}
+
+	public long getCheckOutP90() {
+		return checkOutP90;
+	}
+
+	public long getCheckOutP99() {
+		return checkOutP99;
+	}
+
+	public long getCheckOutP999() {
+		return checkOutP999;
+	}
+}
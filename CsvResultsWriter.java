@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+/**
+ * Writes results as CSV. A file holds either stats or customer records, with its
+ * header written before the first row.
+ *
+ * Stats have one row per store, line and counter, told apart by the scope column,
+ * with the columns that do not apply to a row left empty:
+ * run,layout,scope,index,time,arrived,served,checkedOut,waiting,busy,averageWait,
+ * maxWait,waitP50,waitP90,waitP99,waitP999,averageCheckOut,checkOutP50,checkOutP90,
+ * checkOutP99,checkOutP999,idleTime,utilization,maxLength
+ *
+ * Customer records have one row per customer:
+ * run,layout,id,arrival,start,finish,counter
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class CsvResultsWriter extends ResultsWriter {
+	private static final String STATS_HEADER = "run,layout,scope,index,time,arrived,served,checkedOut,waiting,"
+			+ "busy,averageWait,maxWait,waitP50,waitP90,waitP99,waitP999,averageCheckOut,checkOutP50,checkOutP90,"
+			+ "checkOutP99,checkOutP999,idleTime,utilization,maxLength\n";
+	private static final String CUSTOMER_HEADER = "run,layout,id,arrival,start,finish,counter\n";
+	private String header = null;
+
+	/**
+	 * Creates a writer for a file, replacing anything already in it
+	 * @param filename the file to write to
+	 * @throws IOException if the file cannot be written
+	 */
+	public CsvResultsWriter(String filename) throws IOException {
+		super(filename);
+	}
+
+	/**
+	 * Writes the header the first time a kind of row is written
+	 * @param wanted the header for the kind of row
+	 * @throws IllegalStateException if the file already holds the other kind of row
+	 */
+	private void useHeader(String wanted) throws IOException {
+		if(header == null) {
+			header = wanted;
+			writeText(header);
+		}
+		else if(!header.equals(wanted)) {
+			throw new IllegalStateException("A CSV file holds either stats or customers, not both");
+		}
+	}
+
+	@Override
+	public synchronized void writeStats(String run, StoreStats stats) {
+		try {
+			useHeader(STATS_HEADER);
+			String start = quote(run) + (stats.isMulti() ? ",multiple," : ",single,");
+
+			writeText(start);
+			writeText("store,,");
+			writeLong(stats.getTime());
+			cell(stats.getArrived());
+			cell(stats.getServed());
+			cell(stats.getCheckedOut());
+			cell(stats.getWaiting());
+			writeByte(',');
+			cell(stats.getAverageWaitTime());
+			cell(stats.getMaxWaitTime());
+			cell(stats.getWaitP50());
+			cell(stats.getWaitP90());
+			cell(stats.getWaitP99());
+			cell(stats.getWaitP999());
+			cell(stats.getAverageCheckOutTime());
+			cell(stats.getCheckOutP50());
+			cell(stats.getCheckOutP90());
+			cell(stats.getCheckOutP99());
+			cell(stats.getCheckOutP999());
+			cell(stats.getIdleTime());
+			writeByte(',');
+			cell(stats.getMaxLineLength());
+			writeByte('\n');
+
+			for(LineStats line : stats.getLines()) {
+				writeText(start);
+				writeText("line,");
+				writeLong(line.getLine());
+				cell(stats.getTime());
+				writeByte(',');
+				cell(line.getCustomersServed());
+				writeByte(',');
+				cell(line.getWaiting());
+				writeByte(',');
+				cell(line.getAverageWaitTime());
+				cell(line.getMaxWaitTime());
+				cell(line.getWaitP50());
+				cell(line.getWaitP90());
+				cell(line.getWaitP99());
+				cell(line.getWaitP999());
+				writeText(",,,,,,,");
+				cell(line.getMaxLength());
+				writeByte('\n');
+			}
+
+			for(CounterStats counter : stats.getCounters()) {
+				writeText(start);
+				writeText("counter,");
+				writeLong(counter.getCounter());
+				cell(stats.getTime());
+				writeText(",,");
+				cell(counter.getCustomersFinished());
+				writeByte(',');
+				cell(counter.isBusy() ? 1 : 0);
+				writeText(",,,,,,");
+				cell(counter.getAverageCheckOutTime());
+				cell(counter.getCheckOutP50());
+				cell(counter.getCheckOutP90());
+				cell(counter.getCheckOutP99());
+				cell(counter.getCheckOutP999());
+				cell(counter.getIdleTime());
+				cell(counter.getUtilization());
+				writeText(",\n");
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void writeCustomer(String run, boolean multi, int id, int enterTime, int startTime,
+			int finishTime, int counter) {
+		try {
+			useHeader(CUSTOMER_HEADER);
+			writeText(quote(run));
+			writeText(multi ? ",multiple" : ",single");
+			cell(id);
+			cell(enterTime);
+			cell(startTime);
+			cell(finishTime);
+			cell(counter);
+			writeByte('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a whole number cell after the cells before it
+	 */
+	private void cell(long value) throws IOException {
+		writeByte(',');
+		writeLong(value);
+	}
+
+	/**
+	 * Writes a decimal number cell after the cells before it
+	 */
+	private void cell(double value) throws IOException {
+		writeByte(',');
+		writeDouble(value);
+	}
+
+	/**
+	 * Writes text as a CSV cell, in quotes if it has a comma, quote or line break
+	 * @param text the text to write
+	 * @return the cell
+	 */
+	static String quote(String text) {
+		if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		return "\"" + text.replace("\"", "\"\"") + "\"";
+	}
+}
@@ -7,7 +7,6 @@
  * @version 2/1/2023
  */
 public class Customer {
-    private static int nextPositionInLine = 1;
     private int enterTime;
     private int exitTime;
     private int numItems;
@@ -19,16 +18,32 @@ public class Customer {
     /**
      * Creates a customer who is starting their wait at the current
      * simulation time.
+     * @param context the simulation the customer belongs to
+     * @param num the number of items the customer has to check out
+     */
+    public Customer(SimulationContext context, int num) {
+        this.exitTime = -1;
+        this.numItems = num;
+        this.c = context.getClock();
+        this.startWait();
+        this.positionInLine = context.nextCustomerId();
+    }
+    
+    /**
+     * Recreates a customer from the values a line keeps for them.
      * @param c the clock keeping track of time in the simulation
+     * @param arrivalTime the time the customer arrived
+     * @param enterTime the time the customer entered the line
      * @param num the number of items the customer has to check out
+     * @param id the customer number
      */
-    public Customer(Clock c, int num) {
+    public Customer(Clock c, int arrivalTime, int enterTime, int num, int id) {
         this.exitTime = -1;
         this.numItems = num;
         this.c = c;
-        this.startWait();
-        this.positionInLine = nextPositionInLine;
-        nextPositionInLine++;
+        this.arrivalTime = arrivalTime;
+        this.enterTime = enterTime;
+        this.positionInLine = id;
     }
     
     /**
@@ -0,0 +1,24 @@
+/**
+ * Is told about every customer as they finish checking out, for keeping a record
+ * of each customer instead of only the totals. The customer is passed as plain
+ * numbers, so watching the customers does not create any objects in the store.
+ * Customers who are still in line or at a counter when the simulation ends are
+ * never passed to the observer.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public interface CustomerObserver {
+
+	/**
+	 * Called when a customer finishes checking out
+	 * @param id the customer number
+	 * @param enterTime the time the customer got in line
+	 * @param startTime the time the customer left the line for a counter
+	 * @param finishTime the time the customer finished checking out
+	 * @param counter the counter that checked the customer out, which with a line per
+	 * counter is also the line the customer waited in
+	 */
+	void customerFinished(int id, int enterTime, int startTime, int finishTime, int counter);
+}
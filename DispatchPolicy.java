@@ -0,0 +1,76 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+/**
+ * Decides which line an arriving customer joins in a store with a line per
+ * counter. The store hands the policy its lines once when it is created and then
+ * asks it for a line every time a customer arrives. A store with a single line
+ * has nothing to choose, so it does not use a policy.
+ *
+ * Each store needs its own policy, since a policy keeps track of the lines it
+ * was given and may keep its own random numbers.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public interface DispatchPolicy {
+
+	/**
+	 * Gets the name the policy is known by on the command line
+	 * @return the name of the policy
+	 */
+	String getName();
+
+	/**
+	 * Gives the policy the lines it will be choosing between
+	 * @param lines the lines of the store in counter order
+	 */
+	void attach(List<Line> lines);
+
+	/**
+	 * Picks the line for an arriving customer
+	 * @param numItems the number of items the customer has
+	 * @return the position of the line the customer joins
+	 */
+	int chooseLine(int numItems);
+
+	/**
+	 * Writes anything the policy keeps besides the lines for a checkpoint. Policies
+	 * that only look at the lines have nothing to write.
+	 * @param out where to write the policy
+	 * @throws IOException if it cannot be written
+	 */
+	default void writeState(DataOutput out) throws IOException {
+	}
+
+	/**
+	 * Replaces what the policy keeps with what writeState wrote. The policy has already
+	 * been attached to the lines.
+	 * @param in where to read the policy from
+	 * @throws IOException if it cannot be read
+	 */
+	default void readState(DataInput in) throws IOException {
+	}
+
+	/**
+	 * Creates a policy from its name: shortest, round-robin, random, least-work, or
+	 * power-of-d for sampling d lines (power-of-2 for two choices)
+	 * @param name the name of the policy
+	 * @param seed the seed for policies that choose at random
+	 * @return a new policy
+	 */
+	static DispatchPolicy forName(String name, long seed) {
+		if(name.startsWith("power-of-")) {
+			return new PowerOfChoicesPolicy(Integer.parseInt(name.substring("power-of-".length())), seed);
+		}
+		switch(name) {
+			case "shortest": return new ShortestLinePolicy();
+			case "round-robin": return new RoundRobinPolicy();
+			case "random": return new RandomPolicy(seed);
+			case "least-work": return new LeastWorkPolicy();
+			default: throw new IllegalArgumentException("Unknown dispatch policy " + name);
+		}
+	}
+}
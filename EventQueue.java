@@ -0,0 +1,130 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+/**
+ * A priority queue of upcoming events, where each event is a time and the
+ * number of the counter that needs to be updated at that time. Events come out
+ * in order of time, and events at the same time come out in counter order.
+ *
+ * Each event is packed into a single long with the time in the upper half and
+ * the counter in the lower half, and the events are kept in a binary heap of
+ * longs, so adding and removing events does not create any objects.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class EventQueue {
+	private long[] heap;
+	private int size;
+
+	/**
+	 * Creates an empty event queue
+	 */
+	public EventQueue() {
+		this.heap = new long[16];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds an event to the queue
+	 * @param time the time of the event, which cannot be negative
+	 * @param counter the number of the counter the event is for
+	 */
+	public void add(int time, int counter) {
+		if(size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		long event = ((long) time << 32) | counter;
+		int child = size++;
+		while(child > 0) {
+			int parent = (child - 1) / 2;
+			if(heap[parent] <= event) {
+				break;
+			}
+			heap[child] = heap[parent];
+			child = parent;
+		}
+		heap[child] = event;
+	}
+
+	/**
+	 * Determines if there are no events in the queue
+	 * @return true if the queue is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the number of events in the queue
+	 * @return the number of events in the queue
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the time of the next event. The queue cannot be empty.
+	 * @return the time of the next event
+	 */
+	public int peekTime() {
+		return (int) (heap[0] >>> 32);
+	}
+
+	/**
+	 * Writes the events for a checkpoint, in the order they are kept
+	 * @param out where to write the events
+	 * @throws IOException if they cannot be written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for(int i = 0; i < size; i++) {
+			out.writeLong(heap[i]);
+		}
+	}
+
+	/**
+	 * Replaces the events in the queue with ones written by writeState
+	 * @param in where to read the events from
+	 * @throws IOException if they cannot be read
+	 */
+	public void readState(DataInput in) throws IOException {
+		int count = in.readInt();
+		if(count < 0) {
+			throw new IOException("Bad event count " + count);
+		}
+		heap = new long[Math.max(16, count)];
+		for(int i = 0; i < count; i++) {
+			heap[i] = in.readLong();
+		}
+		size = count;
+	}
+
+	/**
+	 * Removes the next event and returns its counter. The queue cannot be empty.
+	 * @return the counter the next event is for
+	 */
+	public int poll() {
+		int counter = (int) heap[0];
+		long last = heap[--size];
+		int parent = 0;
+		while(true) {
+			int child = 2 * parent + 1;
+			if(child >= size) {
+				break;
+			}
+			if(child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if(last <= heap[child]) {
+				break;
+			}
+			heap[parent] = heap[child];
+			parent = child;
+		}
+		heap[parent] = last;
+		return counter;
+	}
+}
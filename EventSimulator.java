@@ -0,0 +1,187 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.InputMismatchException;
+import java.util.Scanner;
+/**
+ * Simulates the store as a discrete-event simulation. Instead of ticking the clock
+ * one second at a time and updating every counter each second, the clock jumps
+ * straight to the next second where a customer arrives, a counter finishes with a
+ * customer, or an empty counter can take the next customer in line. The store
+ * keeps the upcoming counter events in its own priority queue. The run time
+ * depends on the number of customers instead of the length of the simulation, and
+ * the stats are the same as ticking through every second in LineSimulator.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class EventSimulator {
+	private Store sim;
+	private SimulationContext context;
+	private Clock c;
+	private int pendingTime = -1;
+
+	/**
+	 * Creates an event simulator for the given store
+	 * @param sim the store to simulate
+	 */
+	public EventSimulator(Store sim) {
+		this.sim = sim;
+		this.context = sim.getContext();
+		this.c = context.getClock();
+	}
+
+	/**
+	 * Runs the simulation with the customers from the source until the end time. The
+	 * customers are read one at a time as the simulation reaches their arrival time.
+	 * At the end of the run the clock is at the end time.
+	 * @param source the source of the customers
+	 * @param endTime the time the simulation ends
+	 */
+	public void run(ArrivalSource source, int endTime) {
+		int time = -1;
+		int numItems = -1;
+		//get first customer
+		if(source.next()) {
+			time = source.getTime();
+			numItems = source.getNumItems();
+		}
+		int lastTime = c.getTime() - 1;
+		while(true) {
+			//the next event is a counter waking up or the next customer arriving
+			int now = sim.getNextEventTime();
+			//a customer listed out of order is never reached by the clock
+			if(time > lastTime && (now < 0 || time < now)) {
+				now = time;
+			}
+			if(now < 0 || now >= endTime) {
+				break;
+			}
+			lastTime = now;
+			c.advanceTo(now);
+
+			//check for new customers and add to line
+			while(time == now) {
+				sim.customerArrival(numItems);
+				if(!source.next()) {
+					time = -1;
+				}
+				else {
+					time = source.getTime();
+					numItems = source.getNumItems();
+				}
+			}
+
+			//update the store
+			sim.updateStore();
+		}
+		sim.sampleUntil(endTime - 1);
+		if(endTime > c.getTime()) {
+			c.advanceTo(endTime);
+		}
+	}
+
+	/**
+	 * Adds a customer arriving at the given time, for running the simulation as the
+	 * customers come in instead of from a whole file. Everything before the arrival
+	 * time is simulated first. The store is not updated for the arrival's own second
+	 * until a later customer or advanceTo moves past it, since more customers may
+	 * still arrive in that second.
+	 * @param time the time the customer arrives
+	 * @param numItems the number of items the customer has
+	 * @return false if the customer arrived before the simulation's current time and
+	 * was left out, true otherwise
+	 */
+	public boolean offer(int time, int numItems) {
+		if(time != pendingTime) {
+			if(time < c.getTime()) {
+				return false;
+			}
+			advanceTo(time);
+			pendingTime = time;
+		}
+		sim.customerArrival(numItems);
+		return true;
+	}
+
+	/**
+	 * Simulates everything that happens before the given time, so the clock reads that
+	 * time and nothing in that second has happened yet
+	 * @param time the time to advance to
+	 */
+	public void advanceTo(int time) {
+		if(pendingTime >= 0 && pendingTime < time) {
+			//finish the second the last customers arrived in
+			sim.updateStore();
+			pendingTime = -1;
+		}
+		int now = sim.getNextEventTime();
+		while(now >= 0 && now < time) {
+			c.advanceTo(now);
+			sim.updateStore();
+			now = sim.getNextEventTime();
+		}
+		if(time > c.getTime()) {
+			sim.sampleUntil(time - 1);
+			c.advanceTo(time);
+		}
+	}
+
+	/**
+	 * Runs the simulation from a file given at the prompt. An optional file name can
+	 * be given on the command line to record the line lengths and busy counters, along
+	 * with the number of seconds between samples (60 if it is not given).
+	 * @param args the file for the samples and the sample interval, both optional
+	 */
+	public static void main(String[] args) {
+		String samplesFile = args.length > 0 ? args[0] : null;
+		int interval = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+
+		//Get the simulation information
+		Scanner keyboard = new Scanner(System.in);
+		System.out.println("What is the file with the simulation data?");
+		String filename = keyboard.next();
+		System.out.println("What is the simulation type (single or multiple)?");
+		String type = keyboard.next();
+		boolean multi = !type.toLowerCase().equals("single");
+		keyboard.close();
+
+		try (ArrivalSource source = ArrivalSource.open(filename)) {
+			//Set up Simulation
+			String simName = source.getName();
+			int mins = source.getMinutes();
+			Store sim = new Store(source.getNumWindows(), multi, new SimulationContext());
+
+			//run simulation
+			if(samplesFile == null) {
+				new EventSimulator(sim).run(source, mins*60);
+			}
+			else {
+				try (QueueSampler sampler = QueueSampler.forStore(samplesFile, interval, sim)) {
+					sim.setSampler(sampler);
+					new EventSimulator(sim).run(source, mins*60);
+				}
+			}
+
+			System.out.println("\n\n");
+			System.out.println();
+			System.out.println();
+
+			System.out.println("Stats for the simulation: "+simName);
+			System.out.println();
+			System.out.println();
+			sim.printStats();
+
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+		}
+	}
+
+}
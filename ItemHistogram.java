@@ -0,0 +1,101 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+/**
+ * An empirical distribution of how many items customers have. Each possible
+ * number of items has a weight, and the number of items for a new customer is
+ * drawn in proportion to those weights.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ItemHistogram {
+	private final int[] items;
+	private final double[] cumulative;
+
+	/**
+	 * Creates a histogram from numbers of items and their weights
+	 * @param items the possible numbers of items
+	 * @param weights how often each number of items happens, relative to the others
+	 */
+	public ItemHistogram(int[] items, double[] weights) {
+		if(items.length == 0 || items.length != weights.length) {
+			throw new IllegalArgumentException("Each number of items needs one weight");
+		}
+		this.items = items.clone();
+		this.cumulative = new double[weights.length];
+		double total = 0;
+		for(int i = 0; i < weights.length; i++) {
+			if(weights[i] < 0) {
+				throw new IllegalArgumentException("Weights cannot be negative");
+			}
+			total += weights[i];
+			cumulative[i] = total;
+		}
+		if(total <= 0) {
+			throw new IllegalArgumentException("At least one weight must be positive");
+		}
+		for(int i = 0; i < cumulative.length; i++) {
+			cumulative[i] /= total;
+		}
+	}
+
+	/**
+	 * Reads a histogram written as "items:weight" pairs separated by commas, for
+	 * example "1:5,10:3,25:1". A number of items without a weight has a weight of 1.
+	 * @param spec the histogram written out
+	 * @return the histogram
+	 */
+	public static ItemHistogram parse(String spec) {
+		String[] parts = spec.split(",");
+		int[] items = new int[parts.length];
+		double[] weights = new double[parts.length];
+		for(int i = 0; i < parts.length; i++) {
+			String[] pair = parts[i].trim().split(":");
+			items[i] = Integer.parseInt(pair[0].trim());
+			weights[i] = pair.length > 1 ? Double.parseDouble(pair[1].trim()) : 1.0;
+		}
+		return new ItemHistogram(items, weights);
+	}
+
+	/**
+	 * Creates a histogram of the numbers of items the customers in a trace have
+	 * @param trace the customers to count
+	 * @return the histogram of the trace
+	 */
+	public static ItemHistogram fromTrace(ArrivalTrace trace) {
+		if(trace.size() == 0) {
+			throw new IllegalArgumentException("The trace has no customers");
+		}
+		ArrivalSource source = trace.replay();
+		int max = 0;
+		while(source.next()) {
+			max = Math.max(max, source.getNumItems());
+		}
+		double[] counts = new double[max + 1];
+		source = trace.replay();
+		while(source.next()) {
+			if(source.getNumItems() >= 0) {
+				counts[source.getNumItems()]++;
+			}
+		}
+		int[] items = new int[counts.length];
+		for(int i = 0; i < items.length; i++) {
+			items[i] = i;
+		}
+		return new ItemHistogram(items, counts);
+	}
+
+	/**
+	 * Draws the number of items for a customer
+	 * @param random the random numbers to use
+	 * @return the number of items
+	 */
+	public int sample(SplittableRandom random) {
+		int i = Arrays.binarySearch(cumulative, random.nextDouble());
+		if(i < 0) {
+			i = -i - 1;
+		}
+		return items[Math.min(i, items.length - 1)];
+	}
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+/**
+ * Writes results as JSON lines: one object per line, each with a "type" of store
+ * or customer. A store line holds the overall stats along with a "lineStats" and
+ * a "counterStats" list for its lines and counters.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class JsonLinesResultsWriter extends ResultsWriter {
+
+	/**
+	 * Creates a writer for a file, replacing anything already in it
+	 * @param filename the file to write to
+	 * @throws IOException if the file cannot be written
+	 */
+	public JsonLinesResultsWriter(String filename) throws IOException {
+		super(filename);
+	}
+
+	@Override
+	public synchronized void writeStats(String run, StoreStats stats) {
+		try {
+			writeText("{\"type\":\"store\",\"run\":");
+			writeText(quote(run));
+			writeLayout(stats.isMulti());
+			field("counters", stats.getNumCounters());
+			field("time", stats.getTime());
+			field("arrived", stats.getArrived());
+			field("served", stats.getServed());
+			field("checkedOut", stats.getCheckedOut());
+			field("waiting", stats.getWaiting());
+			field("averageWait", stats.getAverageWaitTime());
+			field("maxWait", stats.getMaxWaitTime());
+			field("waitP50", stats.getWaitP50());
+			field("waitP90", stats.getWaitP90());
+			field("waitP99", stats.getWaitP99());
+			field("waitP999", stats.getWaitP999());
+			field("averageCheckOut", stats.getAverageCheckOutTime());
+			field("checkOutP50", stats.getCheckOutP50());
+			field("checkOutP90", stats.getCheckOutP90());
+			field("checkOutP99", stats.getCheckOutP99());
+			field("checkOutP999", stats.getCheckOutP999());
+			field("idleTime", stats.getIdleTime());
+			field("maxLineLength", stats.getMaxLineLength());
+			writeText(",\"lineStats\":[");
+			for(LineStats line : stats.getLines()) {
+				if(line.getLine() > 0) {
+					writeByte(',');
+				}
+				writeText("{\"line\":");
+				writeLong(line.getLine());
+				field("waiting", line.getWaiting());
+				field("served", line.getCustomersServed());
+				field("averageWait", line.getAverageWaitTime());
+				field("maxWait", line.getMaxWaitTime());
+				field("waitP50", line.getWaitP50());
+				field("waitP90", line.getWaitP90());
+				field("waitP99", line.getWaitP99());
+				field("waitP999", line.getWaitP999());
+				field("maxLength", line.getMaxLength());
+				writeByte('}');
+			}
+			writeText("],\"counterStats\":[");
+			for(CounterStats counter : stats.getCounters()) {
+				if(counter.getCounter() > 0) {
+					writeByte(',');
+				}
+				writeText("{\"counter\":");
+				writeLong(counter.getCounter());
+				field("checkedOut", counter.getCustomersFinished());
+				writeText(counter.isBusy() ? ",\"busy\":true" : ",\"busy\":false");
+				field("idleTime", counter.getIdleTime());
+				field("utilization", counter.getUtilization());
+				field("averageCheckOut", counter.getAverageCheckOutTime());
+				field("checkOutP50", counter.getCheckOutP50());
+				field("checkOutP90", counter.getCheckOutP90());
+				field("checkOutP99", counter.getCheckOutP99());
+				field("checkOutP999", counter.getCheckOutP999());
+				writeByte('}');
+			}
+			writeText("]}\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void writeCustomer(String run, boolean multi, int id, int enterTime, int startTime,
+			int finishTime, int counter) {
+		try {
+			writeText("{\"type\":\"customer\",\"run\":");
+			writeText(quote(run));
+			writeLayout(multi);
+			field("id", id);
+			field("arrival", enterTime);
+			field("start", startTime);
+			field("finish", finishTime);
+			field("counter", counter);
+			writeText("}\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeLayout(boolean multi) throws IOException {
+		writeText(multi ? ",\"layout\":\"multiple\"" : ",\"layout\":\"single\"");
+	}
+
+	/**
+	 * Writes a whole number field after the fields before it
+	 */
+	private void field(String name, long value) throws IOException {
+		writeText(",\"");
+		writeText(name);
+		writeText("\":");
+		writeLong(value);
+	}
+
+	/**
+	 * Writes a decimal number field after the fields before it
+	 */
+	private void field(String name, double value) throws IOException {
+		writeText(",\"");
+		writeText(name);
+		writeText("\":");
+		writeDouble(value);
+	}
+
+	/**
+	 * Writes text as a JSON string
+	 * @param text the text to write
+	 * @return the text in quotes with any special characters escaped
+	 */
+	public static String quote(String text) {
+		StringBuilder out = new StringBuilder("\"");
+		for(int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			switch(ch) {
+				case '"': out.append("\\\""); break;
+				case '\\': out.append("\\\\"); break;
+				case '\n': out.append("\\n"); break;
+				case '\r': out.append("\\r"); break;
+				case '\t': out.append("\\t"); break;
+				default:
+					if(ch < 0x20) {
+						out.append(String.format("\\u%04x", (int) ch));
+					}
+					else {
+						out.append(ch);
+					}
+			}
+		}
+		return out.append('"').toString();
+	}
+}
@@ -0,0 +1,189 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+/**
+ * Counts how many times each wait or check out time happened, using a fixed
+ * number of buckets whose width grows with the time. Times under 32 seconds get
+ * their own bucket, and each doubling after that is split into 32 buckets, so
+ * every time is kept to within about 3% using under a thousand counts no matter
+ * how many customers are recorded. Recording a time never creates an object,
+ * and histograms from different lines, counters or simulations can be merged.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int NUM_BUCKETS = SUB_BUCKETS + (31 - SUB_BITS) * SUB_BUCKETS;
+	private final long[] counts;
+	private long count;
+	private long sum;
+	private int max;
+
+	/**
+	 * Creates an empty histogram
+	 */
+	public LatencyHistogram() {
+		this.counts = new long[NUM_BUCKETS];
+	}
+
+	/**
+	 * Finds the bucket a time belongs in
+	 * @param value the time, which cannot be negative
+	 * @return the bucket for the time
+	 */
+	private static int bucketOf(int value) {
+		if(value < SUB_BUCKETS) {
+			return value;
+		}
+		int exponent = 31 - Integer.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		int sub = (value >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Finds the largest time that belongs in a bucket
+	 * @param bucket the bucket
+	 * @return the largest time in the bucket
+	 */
+	private static long highestIn(int bucket) {
+		if(bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * Records a time. Negative times are counted as 0.
+	 * @param value the time to record
+	 */
+	public void record(int value) {
+		if(value < 0) {
+			value = 0;
+		}
+		counts[bucketOf(value)]++;
+		count++;
+		sum += value;
+		if(value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Adds all the times recorded in another histogram to this one
+	 * @param other the histogram to merge in
+	 */
+	public void merge(LatencyHistogram other) {
+		for(int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Gets the number of times recorded
+	 * @return the number of times recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the largest time recorded
+	 * @return the largest time recorded or 0 if nothing has been recorded
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	/**
+	 * Gets the average of the times recorded
+	 * @return the average time or 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		return count == 0 ? 0.0 : (double) sum / count;
+	}
+
+	/**
+	 * Gets the time that the given percent of the recorded times are at or below.
+	 * The answer is the top of the bucket the percentile falls in, so it is never
+	 * lower than the true percentile.
+	 * @param percent the percentile, from 0 to 100
+	 * @return the percentile or 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percent) {
+		if(count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * count));
+		long seen = 0;
+		for(int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(highestIn(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Writes the histogram for a checkpoint. Only the buckets with counts are written.
+	 * @param out where to write the histogram
+	 * @throws IOException if it cannot be written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeLong(sum);
+		out.writeInt(max);
+		int used = 0;
+		for(int i = 0; i < NUM_BUCKETS; i++) {
+			if(counts[i] != 0) {
+				used++;
+			}
+		}
+		out.writeShort(used);
+		for(int i = 0; i < NUM_BUCKETS; i++) {
+			if(counts[i] != 0) {
+				out.writeShort(i);
+				out.writeLong(counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the contents of the histogram with ones written by writeState
+	 * @param in where to read the histogram from
+	 * @throws IOException if it cannot be read
+	 */
+	public void readState(DataInput in) throws IOException {
+		count = in.readLong();
+		sum = in.readLong();
+		max = in.readInt();
+		Arrays.fill(counts, 0);
+		int used = in.readUnsignedShort();
+		for(int k = 0; k < used; k++) {
+			int bucket = in.readUnsignedShort();
+			if(bucket >= NUM_BUCKETS) {
+				throw new IOException("Bad histogram bucket " + bucket);
+			}
+			counts[bucket] = in.readLong();
+		}
+	}
+
+	/**
+	 * Writes the usual percentiles of the histogram on one line
+	 * @return the 50th, 90th, 99th and 99.9th percentiles written out
+	 */
+	public String percentiles() {
+		return String.format("p50 = %d, p90 = %d, p99 = %d, p99.9 = %d", getPercentile(50),
+				getPercentile(90), getPercentile(99), getPercentile(99.9));
+	}
+}
@@ -0,0 +1,29 @@
+import java.util.List;
+/**
+ * Sends each customer to the line whose waiting customers will take the least
+ * time to check out, counting each of them as their items times the item time
+ * plus the payment time. Ties go to the smallest counter number. The lines keep
+ * their queued work in a LineIndex, so no line is looked at when choosing.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class LeastWorkPolicy implements DispatchPolicy {
+	private LineIndex leastWork;
+
+	public String getName() {
+		return "least-work";
+	}
+
+	public void attach(List<Line> lines) {
+		leastWork = new LineIndex(lines.size());
+		for(int i = 0; i < lines.size(); i++) {
+			lines.get(i).setWorkIndex(leastWork, i);
+		}
+	}
+
+	public int chooseLine(int numItems) {
+		return leastWork.getSmallest();
+	}
+}
@@ -1,21 +1,41 @@
-import java.util.LinkedList;
-import java.util.Queue;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Represents the line that allows customers to wait until they are 
  * called for the next opening. The line keeps track of statistics about 
  * how many customers are waiting, as well as the average and max wait plus
  * the longest the line got.
  * 
+ * The customers in line are not kept as Customer objects. Each customer's arrival
+ * time, enter time, number of items and number are kept in parallel int arrays
+ * used as a ring buffer, so adding and removing customers takes constant time
+ * and does not create any objects once the arrays are big enough.
+ * 
  * @author Jacob Borchert
  * @version 2/1/2023
  *
  */
 public class Line {
 
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final SimulationContext context;
     private final Clock clock;
     private final int lineNumber;
     private int counterNumber;
-    private final Queue<Customer> line = new LinkedList<>();
+    private int[] arrivalTimes = new int[INITIAL_CAPACITY];
+    private int[] enterTimes = new int[INITIAL_CAPACITY];
+    private int[] numItems = new int[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+    private LineIndex index;
+    private LineIndex workIndex;
+    private long queuedWork = 0;
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private int indexPosition;
     private int totalWaitTime = 0;
     private int maxWaitTime = 0;
     private int maxLength = 0;
@@ -23,11 +43,12 @@ public class Line {
     private int customersFinished;
     /**
 	 * Creates an empty line for customers to wait in
-	 * @param c the clock for the simulation
+	 * @param context the simulation the line belongs to
 	 * @param num the line number
 	 */
-    public Line(Clock c, int num) {
-        clock = c;
+    public Line(SimulationContext context, int num) {
+        this.context = context;
+        clock = context.getClock();
         lineNumber = num;
         customersFinished=0;
     }
@@ -38,26 +59,108 @@ public class Line {
 	 * @param cust the customer to add to the line
 	 */
     public void addToLine(Customer cust) {
-        line.add(cust);
-        int waitTime = clock.getTime() - cust.getArrivalTime();
+        addToLine(cust.getArrivalTime(), cust.getEnterTime(), cust.getNumItems(), cust.getPositionInLine());
+    }
+    /**
+	 * Adds a new customer to the end of the line without needing a Customer object
+	 * @param arrivalTime the time the customer arrived
+	 * @param enterTime the time the customer entered the line
+	 * @param items the number of items the customer has
+	 * @param id the customer number
+	 */
+    public void addToLine(int arrivalTime, int enterTime, int items, int id) {
+        if (size == ids.length) {
+            grow();
+        }
+        int tail = (head + size) & (ids.length - 1);
+        arrivalTimes[tail] = arrivalTime;
+        enterTimes[tail] = enterTime;
+        numItems[tail] = items;
+        ids[tail] = id;
+        size++;
+        queuedWork += Counter.getCheckOutTime(items);
+        updateIndex();
+        int waitTime = clock.getTime() - arrivalTime;
         if (waitTime > maxWaitTime) {
             maxWaitTime = waitTime;
         }
     }
+    /**
+	 * Doubles the room in the line, keeping the customers in order from the front
+	 */
+    private void grow() {
+        int capacity = ids.length * 2;
+        arrivalTimes = unwrap(arrivalTimes, capacity);
+        enterTimes = unwrap(enterTimes, capacity);
+        numItems = unwrap(numItems, capacity);
+        ids = unwrap(ids, capacity);
+        head = 0;
+    }
+    /**
+	 * Copies the customers in the ring buffer to the start of a bigger array
+	 * @param values the ring buffer to copy
+	 * @param capacity the size of the new array
+	 * @return the new array with the front of the line at index 0
+	 */
+    private int[] unwrap(int[] values, int capacity) {
+        int[] copy = new int[capacity];
+        int firstPart = Math.min(size, values.length - head);
+        System.arraycopy(values, head, copy, 0, firstPart);
+        System.arraycopy(values, 0, copy, firstPart, size - firstPart);
+        return copy;
+    }
+    /**
+	 * Keeps the length of the line up to date in an index of the store's lines
+	 * @param index the index of line lengths
+	 * @param position the position of this line in the index
+	 */
+    public void setIndex(LineIndex index, int position) {
+        this.index = index;
+        this.indexPosition = position;
+        updateIndex();
+    }
+    /**
+	 * Keeps the expected work in the line up to date in an index of the store's lines
+	 * @param index the index of queued work
+	 * @param position the position of this line in the index
+	 */
+    public void setWorkIndex(LineIndex index, int position) {
+        this.workIndex = index;
+        this.indexPosition = position;
+        updateIndex();
+    }
+    /**
+	 * Tells the indexes the current length of the line and the work in it, if there are any
+	 */
+    private void updateIndex() {
+        if (index != null) {
+            index.update(indexPosition, size);
+        }
+        if (workIndex != null) {
+            workIndex.update(indexPosition, (int) Math.min(queuedWork, Integer.MAX_VALUE - 1));
+        }
+    }
     /**
 	 * Determines if the line has at least
 	 * one customer waiting
 	 * @return true if there is at least one customer waiting, false otherwise
 	 */
     public boolean hasNextCustomer() {
-        return !line.isEmpty();
+        return size > 0;
     }
     /**
 	 * Gets the current length of the line
 	 * @return the current length of the line
 	 */
     public int getLineLength() {
-        return line.size();
+        return size;
+    }
+    /**
+	 * Gets the number of seconds the customers waiting in line will take to check out
+	 * @return the check out time of everyone in line added together
+	 */
+    public long getQueuedWork() {
+        return queuedWork;
     }
     /**
 	 * Gets the total amount of time waited by all customers that
@@ -72,14 +175,115 @@ public class Line {
 	 * @return the customer at the front of the line
 	 */
     public Customer getNextCustomer() {
-        if (line.isEmpty()) {
+        if (size == 0) {
             return null;
         }
-        Customer cust = line.remove();
-        int waitTime = clock.getTime() - cust.getArrivalTime();
+        Customer cust = new Customer(clock, arrivalTimes[head], enterTimes[head], numItems[head], ids[head]);
+        removeNextCustomer();
+        return cust;
+    }
+    /**
+	 * Gets the arrival time of the customer at the front of the line
+	 * @return the arrival time of the customer at the front of the line
+	 */
+    public int getNextArrivalTime() {
+        return arrivalTimes[head];
+    }
+    /**
+	 * Gets the time the customer at the front of the line entered the line
+	 * @return the enter time of the customer at the front of the line
+	 */
+    public int getNextEnterTime() {
+        return enterTimes[head];
+    }
+    /**
+	 * Gets the number of items of the customer at the front of the line
+	 * @return the number of items of the customer at the front of the line
+	 */
+    public int getNextNumItems() {
+        return numItems[head];
+    }
+    /**
+	 * Gets the number of the customer at the front of the line
+	 * @return the number of the customer at the front of the line
+	 */
+    public int getNextId() {
+        return ids[head];
+    }
+    /**
+	 * Removes the customer at the front of the line and records their wait, without
+	 * creating a Customer object. The line must have a customer.
+	 */
+    public void removeNextCustomer() {
+        int waitTime = clock.getTime() - arrivalTimes[head];
         totalWaitTime += waitTime;
         numCustomersServed++; // increment counter
-        return cust;
+        context.recordWait(clock.getTime() - enterTimes[head]);
+        waitTimes.record(clock.getTime() - enterTimes[head]);
+        queuedWork -= Counter.getCheckOutTime(numItems[head]);
+        head = (head + 1) & (ids.length - 1);
+        size--;
+        updateIndex();
+    }
+    /**
+	 * Writes the customers in line, from the front, and the line's stats for a checkpoint
+	 * @param out where to write the line
+	 * @throws IOException if it cannot be written
+	 */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & (ids.length - 1);
+            out.writeInt(arrivalTimes[slot]);
+            out.writeInt(enterTimes[slot]);
+            out.writeInt(numItems[slot]);
+            out.writeInt(ids[slot]);
+        }
+        out.writeInt(totalWaitTime);
+        out.writeInt(maxWaitTime);
+        out.writeInt(maxLength);
+        out.writeInt(numCustomersServed);
+        out.writeInt(customersFinished);
+        out.writeInt(counterNumber);
+        waitTimes.writeState(out);
+    }
+
+    /**
+	 * Replaces the customers in line and the line's stats with ones written by writeState
+	 * @param in where to read the line from
+	 * @throws IOException if it cannot be read
+	 */
+    public void readState(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad line length " + count);
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < count) {
+            capacity *= 2;
+        }
+        arrivalTimes = new int[capacity];
+        enterTimes = new int[capacity];
+        numItems = new int[capacity];
+        ids = new int[capacity];
+        head = 0;
+        size = count;
+        queuedWork = 0;
+        for (int i = 0; i < count; i++) {
+            arrivalTimes[i] = in.readInt();
+            enterTimes[i] = in.readInt();
+            numItems[i] = in.readInt();
+            ids[i] = in.readInt();
+            queuedWork += Counter.getCheckOutTime(numItems[i]);
+        }
+        totalWaitTime = in.readInt();
+        maxWaitTime = in.readInt();
+        maxLength = in.readInt();
+        numCustomersServed = in.readInt();
+        customersFinished = in.readInt();
+        counterNumber = in.readInt();
+        waitTimes.readState(in);
+        updateIndex();
     }
     /**
 	 * At the end of the simulation, removes all the customers that are still
@@ -88,14 +292,17 @@ public class Line {
 	 * @return the number of customers that were removed from the line
 	 */
     public int cleanUp() {
-        int numRemoved = line.size();
-        for (Customer cust : line) {
-            int waitTime = clock.getTime() - cust.getArrivalTime();
+        int numRemoved = size;
+        for (int i = 0; i < size; i++) {
+            int waitTime = clock.getTime() - arrivalTimes[(head + i) & (ids.length - 1)];
             if (waitTime > maxWaitTime) {
                 maxWaitTime = waitTime;
             }
         }
-        line.clear();
+        head = 0;
+        size = 0;
+        queuedWork = 0;
+        updateIndex();
         maxLength = 0;
         return numRemoved;
     }
@@ -108,7 +315,7 @@ public class Line {
 	 */
     public void printLineStats() {
         System.out.println("Line " + lineNumber + " stats:");
-        System.out.println("  customers in line at end of simulation: " + line.size());
+        System.out.println("  customers in line at end of simulation: " + size);
         System.out.println("  max line length during simulation: " + maxLength);
         System.out.println("  average wait time for customers who left line before simulation end: " + (double) totalWaitTime / numCustomersServed); // use counter instead of computing difference
         System.out.println("  max wait time for any customer: " + maxWaitTime);
@@ -116,8 +323,8 @@ public class Line {
     
     public int getMaxLength() {
         int max = 0;
-        for (Customer c : line) {
-            int length = c.getPositionInLine();
+        for (int i = 0; i < size; i++) {
+            int length = ids[(head + i) & (ids.length - 1)];
             if (length > max) {
                 max = length;
             }
@@ -147,6 +354,34 @@ public class Line {
         return maxWaitTime;
     }
     
+    /**
+	 * Gets the histogram of how long the customers who left the line waited, measured
+	 * from the time they entered the line
+	 * @return the histogram of wait times
+	 */
+    public LatencyHistogram getWaitHistogram() {
+        return waitTimes;
+    }
+    
+    /**
+	 * Records how long each customer still in line has waited so far, measured from the
+	 * time they entered the line
+	 * @param waits the histogram to record the waits in
+	 */
+    public void recordWaitsSoFar(LatencyHistogram waits) {
+        for (int i = 0; i < size; i++) {
+            waits.record(clock.getTime() - enterTimes[(head + i) & (ids.length - 1)]);
+        }
+    }
+    
+    /**
+	 * Gets the number of customers that have left the line for a counter
+	 * @return the number of customers that have left the line for a counter
+	 */
+    public int getCustomersServed() {
+        return numCustomersServed;
+    }
+    
     public int getCustomersFinished() {
         return customersFinished;
     }
@@ -0,0 +1,105 @@
+/**
+ * Keeps the lines of a store ordered by a key, such as their length, so the
+ * line with the smallest key can be found without looking at every line. Ties
+ * are broken by the smallest line number, the same as scanning the lines in
+ * order and keeping the first smallest one.
+ *
+ * The index is a segment tree stored in an array. Each leaf holds a line and
+ * each parent holds whichever of its two children has the smaller key, so
+ * changing a key takes O(log n) and finding the smallest takes O(1).
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class LineIndex {
+	private final int numLines;
+	private final int leaves;
+	private final int[] keys;
+	private final int[] tree;
+
+	/**
+	 * Creates an index for the given number of lines, all starting with a key of 0
+	 * @param numLines the number of lines in the index
+	 */
+	public LineIndex(int numLines) {
+		if(numLines < 1) {
+			throw new IllegalArgumentException("The index needs at least one line");
+		}
+		this.numLines = numLines;
+		int leaves = 1;
+		while(leaves < numLines) {
+			leaves *= 2;
+		}
+		this.leaves = leaves;
+		this.keys = new int[leaves];
+		this.tree = new int[2 * leaves];
+		for(int i = numLines; i < leaves; i++) {
+			//padding leaves can never be the smallest
+			keys[i] = Integer.MAX_VALUE;
+		}
+		for(int i = 0; i < leaves; i++) {
+			tree[leaves + i] = i;
+		}
+		for(int node = leaves - 1; node >= 1; node--) {
+			tree[node] = smaller(tree[2 * node], tree[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * Picks the line with the smaller key, or the smaller line number if the keys tie
+	 * @param left a line
+	 * @param right a line with a larger line number than left
+	 * @return the line that comes first in the index
+	 */
+	private int smaller(int left, int right) {
+		return keys[right] < keys[left] ? right : left;
+	}
+
+	/**
+	 * Changes the key of a line
+	 * @param line the line number
+	 * @param key the new key of the line
+	 */
+	public void update(int line, int key) {
+		if(keys[line] == key) {
+			return;
+		}
+		keys[line] = key;
+		int node = (leaves + line) / 2;
+		while(node >= 1) {
+			int best = smaller(tree[2 * node], tree[2 * node + 1]);
+			if(tree[node] == best && best != line) {
+				//nothing above this node changes
+				break;
+			}
+			tree[node] = best;
+			node /= 2;
+		}
+	}
+
+	/**
+	 * Gets the line with the smallest key, breaking ties by the smallest line number
+	 * @return the line number with the smallest key
+	 */
+	public int getSmallest() {
+		return tree[1];
+	}
+
+	/**
+	 * Gets the key of a line
+	 * @param line the line number
+	 * @return the key of the line
+	 */
+	public int getKey(int line) {
+		return keys[line];
+	}
+
+	/**
+	 * Gets the number of lines in the index
+	 * @return the number of lines in the index
+	 */
+	public int size() {
+		return numLines;
+	}
+}
@@ -1,6 +1,7 @@
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.InputMismatchException;
 import java.util.Scanner;
 /**
  * DO NOT CHANGE
@@ -16,6 +17,48 @@ import java.util.Scanner;
  */
 public class LineSimulator {
 
+	/**
+	 * Runs the simulation one second at a time until the end time, adding the
+	 * customers from the source as the clock reaches their arrival time
+	 * @param infile the source of the customers
+	 * @param sim the store to simulate
+	 * @param endTime the time the simulation ends
+	 */
+	public static void runTicks(ArrivalSource infile, Store sim, int endTime) {
+		SimulationContext context = sim.getContext();
+		Clock c = context.getClock();
+		int time = -1;
+		int numItems = -1;
+		//get first customer
+		if(infile.next()) {
+			time = infile.getTime();
+			numItems = infile.getNumItems();
+		}
+		//run simulation
+		while(c.getTime() < endTime) {
+			
+			//check for new customers and add to line
+			while(time == c.getTime()) {
+				sim.customerArrival(numItems);
+				if(!infile.next()) {
+					time = -1;
+				}
+				else {
+					time = infile.getTime();
+					numItems = infile.getNumItems();
+				}
+			}
+
+			//update the store
+			sim.updateStore();
+
+			//update the clock
+			c.incrementTime();
+
+		}
+		sim.sampleUntil(endTime - 1);
+	}
+
 	public static void main(String[] args) {
 		//Get the simulation information
 		Scanner keyboard = new Scanner(System.in);
@@ -32,45 +75,15 @@ public class LineSimulator {
 		}
 		keyboard.close();
 
-		Scanner infile;
-		try {
+		try (ArrivalSource infile = ArrivalSource.open(filename)) {
 			//Set up Simulation
-			infile = new Scanner(new File(filename));
-			String simName = infile.nextLine();
-			int mins = infile.nextInt();
-			int numWindows = infile.nextInt();
-			Clock c = new Clock();
-			Store sim = new Store(numWindows, multi, c);
-			infile.nextLine();
-			int time = -1;
-			int numItems = -1;
-			//get first customer
-			if(infile.hasNextInt()) {
-				time = infile.nextInt();
-				numItems = infile.nextInt();
-			}
-			//run simulation
-			while(c.getTime() < mins*60) {
-				
-				//check for new customers and add to line
-				while(time == c.getTime()) {
-					sim.customerArrival(new Customer(c, numItems));
-					if(!infile.hasNextInt()) {
-						time = -1;
-					}
-					else {
-						time = infile.nextInt();
-						numItems = infile.nextInt();
-					}
-				}
+			String simName = infile.getName();
+			int mins = infile.getMinutes();
+			int numWindows = infile.getNumWindows();
+			Store sim = new Store(numWindows, multi, new SimulationContext());
 
-				//update the store
-				sim.updateStore();
-
-				//update the clock
-				c.incrementTime();
-
-			}
+			//run simulation
+			runTicks(infile, sim, mins*60);
 
 			System.out.println("\n\n");
 			System.out.println();
@@ -83,6 +96,12 @@ public class LineSimulator {
 
 		} catch (FileNotFoundException e) {
 			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
 		}
 
 	}
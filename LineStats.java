@@ -0,0 +1,88 @@
+/**
+ * Holds the stats of one line at a point in the simulation, so they can be kept
+ * or written out after the store moves on. The wait is measured from the time a
+ * customer entered the line to the time they left it for a counter.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class LineStats {
+	private final int line;
+	private final int waiting;
+	private final int customersServed;
+	private final double averageWaitTime;
+	private final int maxWaitTime;
+	private final long waitP50;
+	private final long waitP90;
+	private final long waitP99;
+	private final long waitP999;
+	private final int maxLength;
+
+	/**
+	 * Records the stats of a line as they are now
+	 * @param line the position of the line in the store
+	 * @param l the line
+	 */
+	public LineStats(int line, Line l) {
+		LatencyHistogram waits = l.getWaitHistogram();
+		this.line = line;
+		this.waiting = l.getLineLength();
+		this.customersServed = l.getCustomersServed();
+		this.averageWaitTime = waits.getMean();
+		this.maxWaitTime = waits.getMax();
+		this.waitP50 = waits.getPercentile(50);
+		this.waitP90 = waits.getPercentile(90);
+		this.waitP99 = waits.getPercentile(99);
+		this.waitP999 = waits.getPercentile(99.9);
+		this.maxLength = l.getMaxLength();
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Gets the number of customers who were still in line
+	 * @return the number of customers waiting
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public int getCustomersServed() {
+		return customersServed;
+	}
+
+	public double getAverageWaitTime() {
+		return averageWaitTime;
+	}
+
+	public int getMaxWaitTime() {
+		return maxWaitTime;
+	}
+
+	public long getWaitP50() {
+		return waitP50;
+	}
+
+	public long getWaitP90() {
+		return waitP90;
+	}
+
+	public long getWaitP99() {
+		return waitP99;
+	}
+
+	public long getWaitP999() {
+		return waitP999;
+	}
+
+	/**
+	 * Gets the max line length the same way printStats reports it
+	 * @return the max line length
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+}
@@ -0,0 +1,219 @@
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+/**
+ * Simulates the store as the customers come in, reading "time numItems" lines
+ * from standard input or a named pipe and printing the state of the store at a
+ * fixed interval of simulated time. The simulation only moves forward as far as
+ * the latest time it has been given, so it can follow a real store through the
+ * day. A line with only a time moves the simulation up to that time when no
+ * customers are arriving.
+ *
+ * Each report is one line of JSON with the current line lengths and the average
+ * wait, the customers checked out and the counter utilization over the last few
+ * minutes. The recent stats come from the difference between the store's running
+ * totals now and at an earlier report, kept in a fixed ring, so memory does not
+ * grow with the length of the stream.
+ *
+ * Usage: java LiveSimulator --windows N [--layout single|multiple] [--input path]
+ * [--every S] [--window S]
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class LiveSimulator {
+	private final Store sim;
+	private final EventSimulator engine;
+	private final SimulationContext context;
+	private final PrintStream out;
+	private final int every;
+	private final int[] snapshotTimes;
+	private final long[] snapshotWaits;
+	private final long[] snapshotServed;
+	private final long[] snapshotCheckedOut;
+	private final long[] snapshotIdle;
+	private int snapshots;
+	private int nextReport;
+	private long skipped;
+
+	/**
+	 * Creates a live simulation of a store
+	 * @param sim the store to simulate
+	 * @param out where to print the reports
+	 * @param every the number of seconds between reports
+	 * @param window the number of seconds the recent stats cover, a multiple of every
+	 */
+	public LiveSimulator(Store sim, PrintStream out, int every, int window) {
+		if(every < 1 || window < every) {
+			throw new IllegalArgumentException("The window must be at least as long as the report interval");
+		}
+		this.sim = sim;
+		this.engine = new EventSimulator(sim);
+		this.context = sim.getContext();
+		this.out = out;
+		this.every = every;
+		int size = window / every + 1;
+		this.snapshotTimes = new int[size];
+		this.snapshotWaits = new long[size];
+		this.snapshotServed = new long[size];
+		this.snapshotCheckedOut = new long[size];
+		this.snapshotIdle = new long[size];
+		this.snapshots = 0;
+		this.nextReport = context.getClock().getTime() + every;
+		takeSnapshot(context.getClock().getTime());
+	}
+
+	/**
+	 * Reports for every report time up to the given time, then adds the customer
+	 * @param time the time the customer arrives
+	 * @param numItems the number of items the customer has
+	 */
+	public void arrive(int time, int numItems) {
+		advanceTo(time);
+		if(!engine.offer(time, numItems)) {
+			skipped++;
+		}
+	}
+
+	/**
+	 * Moves the simulation up to the given time, reporting at every report time on the way
+	 * @param time the time to move up to
+	 */
+	public void advanceTo(int time) {
+		while(nextReport <= time) {
+			engine.advanceTo(nextReport);
+			report();
+			nextReport += every;
+		}
+		if(time > context.getClock().getTime()) {
+			engine.advanceTo(time);
+		}
+	}
+
+	/**
+	 * Records the running totals of the store at a report time, replacing the oldest ones
+	 * @param time the time of the report
+	 */
+	private void takeSnapshot(int time) {
+		int slot = snapshots % snapshotTimes.length;
+		snapshotTimes[slot] = time;
+		snapshotWaits[slot] = context.getTotalWaitTime();
+		snapshotServed[slot] = context.getCustomersServed();
+		snapshotCheckedOut[slot] = context.getCustomersCheckedOut();
+		snapshotIdle[slot] = sim.getTotalIdleTime();
+		snapshots++;
+	}
+
+	/**
+	 * Prints the state of the store now and over the recent window
+	 */
+	private void report() {
+		int now = context.getClock().getTime();
+		takeSnapshot(now);
+		//the oldest snapshot still kept is the start of the window
+		int oldest = snapshots <= snapshotTimes.length ? 0 : snapshots % snapshotTimes.length;
+		int newest = (snapshots - 1) % snapshotTimes.length;
+		int span = now - snapshotTimes[oldest];
+		long served = snapshotServed[newest] - snapshotServed[oldest];
+		long waits = snapshotWaits[newest] - snapshotWaits[oldest];
+		long checkedOut = snapshotCheckedOut[newest] - snapshotCheckedOut[oldest];
+		long idle = snapshotIdle[newest] - snapshotIdle[oldest];
+		double utilization = span == 0 ? 0.0 : 1.0 - (double) idle / ((long) span * sim.getNumCounters());
+
+		StringBuilder line = new StringBuilder();
+		line.append("{\"time\":").append(now).append(",\"lines\":[");
+		for(int l = 0; l < sim.getNumLines(); l++) {
+			if(l > 0) {
+				line.append(',');
+			}
+			line.append(sim.getLineLength(l));
+		}
+		line.append("],\"busy\":");
+		int busy = 0;
+		for(int i = 0; i < sim.getNumCounters(); i++) {
+			if(sim.isCounterBusy(i)) {
+				busy++;
+			}
+		}
+		line.append(busy);
+		line.append(",\"window\":").append(span);
+		line.append(",\"averageWait\":").append(served == 0 ? 0.0 : (double) waits / served);
+		line.append(",\"checkedOut\":").append(checkedOut);
+		line.append(",\"utilization\":").append(String.format("%.3f", utilization));
+		line.append(",\"arrived\":").append(context.getCustomersArrived());
+		line.append(",\"skipped\":").append(skipped).append('}');
+		out.println(line);
+		out.flush();
+	}
+
+	/**
+	 * Reads arrivals from a stream until it ends, reporting as the simulation moves forward
+	 * @param in the stream of "time numItems" lines
+	 * @throws IOException if the stream cannot be read
+	 */
+	public void follow(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+		String text;
+		int lineNumber = 0;
+		while((text = reader.readLine()) != null) {
+			lineNumber++;
+			text = text.trim();
+			if(text.isEmpty()) {
+				continue;
+			}
+			int space = text.indexOf(' ');
+			try {
+				if(space < 0) {
+					advanceTo(Integer.parseInt(text));
+				}
+				else {
+					arrive(Integer.parseInt(text.substring(0, space)), Integer.parseInt(text.substring(space + 1).trim()));
+				}
+			} catch (NumberFormatException e) {
+				System.err.println("Skipping line " + lineNumber + ": " + text);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		int numWindows = -1;
+		boolean multi = false;
+		String input = null;
+		int every = 60;
+		int window = 300;
+		for(int i = 0; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			switch(args[i]) {
+				case "--windows": numWindows = Integer.parseInt(args[i + 1]); break;
+				case "--layout": multi = !args[i + 1].equals("single"); break;
+				case "--input": input = args[i + 1]; break;
+				case "--every": every = Integer.parseInt(args[i + 1]); break;
+				case "--window": window = Integer.parseInt(args[i + 1]); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if(numWindows < 1) {
+			System.out.println("Usage: java LiveSimulator --windows N [--layout single|multiple] [--input path]"
+					+ " [--every S] [--window S]");
+			return;
+		}
+
+		Store sim = new Store(numWindows, multi, new SimulationContext());
+		LiveSimulator live = new LiveSimulator(sim, System.out, every, window);
+		try (InputStream in = input == null ? System.in : new FileInputStream(input)) {
+			live.follow(in);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the input: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,259 @@
+/**
+ * Simulates many replications of the same store at once, one second at a time
+ * for all of them together. Instead of a Store with lists of Counter and Line
+ * objects per replication, the state of every counter and line of every
+ * replication is kept in flat arrays indexed by replication, so each second is a
+ * few tight loops over plain ints. The customers are simulated exactly the way
+ * Store does, so each replication's overall stats are the same as running it in
+ * its own Store.
+ *
+ * Counter i of replication r is at index r * numCounters + i, and line l of
+ * replication r is at index r * numLines + l. A customer in line is kept as the
+ * time they entered it and their number of items.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class LockstepSimulator {
+	private static final int INITIAL_CAPACITY = 16;
+	private final int reps;
+	private final int numCounters;
+	private final int numLines;
+	private final boolean multi;
+
+	private final boolean[] busy;
+	private final int[] finishTime;
+	private final int[] freeAt;
+	private final int[] enterTime;
+
+	private final int[] head;
+	private final int[] size;
+	private final int[][] queueEnter;
+	private final int[][] queueItems;
+
+	private final ArrivalSource[] sources;
+	private final boolean[] hasNext;
+	private final int[] nextTime;
+	private final int[] nextItems;
+	private final int[] nextEvent;
+
+	private final long[] served;
+	private final long[] totalWait;
+	private final long[] checkedOut;
+	private final long[] totalCheckOut;
+	private final LatencyHistogram waitTimes = new LatencyHistogram();
+	private final LatencyHistogram checkOutTimes = new LatencyHistogram();
+
+	/**
+	 * Creates the replications, one for each source of customers
+	 * @param numCounters the number of counters in every replication
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param sources the customers for each replication
+	 */
+	public LockstepSimulator(int numCounters, boolean multi, ArrivalSource[] sources) {
+		this.reps = sources.length;
+		this.numCounters = numCounters;
+		this.numLines = multi ? numCounters : 1;
+		this.multi = multi;
+
+		this.busy = new boolean[reps * numCounters];
+		this.finishTime = new int[reps * numCounters];
+		this.freeAt = new int[reps * numCounters];
+		this.enterTime = new int[reps * numCounters];
+
+		this.head = new int[reps * numLines];
+		this.size = new int[reps * numLines];
+		this.queueEnter = new int[reps * numLines][INITIAL_CAPACITY];
+		this.queueItems = new int[reps * numLines][INITIAL_CAPACITY];
+
+		this.sources = sources.clone();
+		this.hasNext = new boolean[reps];
+		this.nextTime = new int[reps];
+		this.nextItems = new int[reps];
+		this.nextEvent = new int[reps];
+		for(int r = 0; r < reps; r++) {
+			readNext(r);
+		}
+
+		this.served = new long[reps];
+		this.totalWait = new long[reps];
+		this.checkedOut = new long[reps];
+		this.totalCheckOut = new long[reps];
+	}
+
+	/**
+	 * Reads the next customer of a replication
+	 * @param r the replication
+	 */
+	private void readNext(int r) {
+		hasNext[r] = sources[r].next();
+		if(hasNext[r]) {
+			nextTime[r] = sources[r].getTime();
+			nextItems[r] = sources[r].getNumItems();
+		}
+	}
+
+	/**
+	 * Puts an arriving customer at the end of the shortest line of their replication,
+	 * with ties going to the smallest counter number, the same as Store
+	 * @param r the replication
+	 * @param now the current time
+	 * @param items the number of items the customer has
+	 */
+	private void arrive(int r, int now, int items) {
+		int first = r * numLines;
+		int chosen = first;
+		for(int l = first + 1; l < first + numLines; l++) {
+			if(size[l] < size[chosen]) {
+				chosen = l;
+			}
+		}
+		int capacity = queueEnter[chosen].length;
+		if(size[chosen] == capacity) {
+			queueEnter[chosen] = unwrap(queueEnter[chosen], head[chosen], capacity * 2);
+			queueItems[chosen] = unwrap(queueItems[chosen], head[chosen], capacity * 2);
+			head[chosen] = 0;
+			capacity *= 2;
+		}
+		int tail = (head[chosen] + size[chosen]) & (capacity - 1);
+		queueEnter[chosen][tail] = now;
+		queueItems[chosen][tail] = items;
+		size[chosen]++;
+	}
+
+	/**
+	 * Copies a full ring buffer to the start of a bigger array
+	 */
+	private static int[] unwrap(int[] values, int start, int capacity) {
+		int[] copy = new int[capacity];
+		System.arraycopy(values, start, copy, 0, values.length - start);
+		System.arraycopy(values, 0, copy, values.length - start, start);
+		return copy;
+	}
+
+	/**
+	 * Simulates every replication from time 0 until the end time. All the replications
+	 * move through the same seconds together. A second where nothing happens in any
+	 * replication is skipped, and so is a replication with nothing happening in the
+	 * current second.
+	 * @param endTime the time the simulation ends
+	 */
+	public void run(int endTime) {
+		int now = 0;
+		for(int r = 0; r < reps; r++) {
+			nextEvent[r] = hasNext[r] ? nextTime[r] : Integer.MAX_VALUE;
+		}
+		while(now < endTime) {
+			int next = Integer.MAX_VALUE;
+			for(int r = 0; r < reps; r++) {
+				if(nextEvent[r] == now) {
+					nextEvent[r] = step(r, now);
+				}
+				next = Math.min(next, nextEvent[r]);
+			}
+			now = next;
+		}
+	}
+
+	/**
+	 * Simulates one second of one replication the same way Store does: arrivals join
+	 * a line, then counters finish, then free counters take the next customer
+	 * @param r the replication
+	 * @param now the current time
+	 * @return the next second where something happens in the replication
+	 */
+	private int step(int r, int now) {
+		int next = Integer.MAX_VALUE;
+
+		//customers arriving this second join a line
+		while(hasNext[r] && nextTime[r] == now) {
+			arrive(r, now, nextItems[r]);
+			readNext(r);
+		}
+		//a customer listed out of order is never reached
+		if(hasNext[r] && nextTime[r] > now) {
+			next = nextTime[r];
+		}
+
+		//counters whose customer finishes this second, which can take the next one next second
+		int first = r * numCounters;
+		int last = first + numCounters;
+		for(int k = first; k < last; k++) {
+			if(busy[k] && finishTime[k] == now) {
+				busy[k] = false;
+				freeAt[k] = now + 1;
+				next = now + 1;
+				int checkOut = now - enterTime[k];
+				checkedOut[r]++;
+				totalCheckOut[r] += checkOut;
+				checkOutTimes.record(checkOut);
+			}
+		}
+
+		//free counters take the next customer from their line in counter order
+		for(int k = first; k < last; k++) {
+			int l = multi ? k : r;
+			if(!busy[k] && freeAt[k] <= now && size[l] > 0) {
+				int slot = head[l];
+				int entered = queueEnter[l][slot];
+				head[l] = (slot + 1) & (queueEnter[l].length - 1);
+				size[l]--;
+				busy[k] = true;
+				enterTime[k] = entered;
+				finishTime[k] = entered + Counter.getCheckOutTime(queueItems[l][slot]);
+				int wait = now - entered;
+				served[r]++;
+				totalWait[r] += wait;
+				waitTimes.record(wait);
+			}
+			//a customer whose finish time has already passed never finishes
+			if(busy[k] && finishTime[k] > now && finishTime[k] < next) {
+				next = finishTime[k];
+			}
+		}
+		return next;
+	}
+
+	public int getReps() {
+		return reps;
+	}
+
+	/**
+	 * Gets the average wait in line of a replication, measured the same as SimulationContext
+	 * @param r the replication
+	 * @return the average wait or 0 if no customer left the line
+	 */
+	public double getAverageWaitTime(int r) {
+		return served[r] == 0 ? 0.0 : (double) totalWait[r] / served[r];
+	}
+
+	/**
+	 * Gets the average check out time of a replication, measured the same as SimulationContext
+	 * @param r the replication
+	 * @return the average check out time or 0 if no customer finished
+	 */
+	public double getAverageCheckOutTime(int r) {
+		return checkedOut[r] == 0 ? 0.0 : (double) totalCheckOut[r] / checkedOut[r];
+	}
+
+	public long getCustomersCheckedOut(int r) {
+		return checkedOut[r];
+	}
+
+	/**
+	 * Gets the wait times of every customer in every replication
+	 * @return the histogram of wait times
+	 */
+	public LatencyHistogram getWaitHistogram() {
+		return waitTimes;
+	}
+
+	/**
+	 * Gets the check out times of every customer in every replication
+	 * @return the histogram of check out times
+	 */
+	public LatencyHistogram getCheckOutHistogram() {
+		return checkOutTimes;
+	}
+}
@@ -0,0 +1,470 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+/**
+ * Runs many replications of the store with made-up customers and reports the
+ * mean and 95% confidence interval of the wait and check out times across the
+ * replications. Each replication gets its own random number stream split from
+ * one seed, so the results are the same every time for the same seed no matter
+ * how the replications are spread over the threads.
+ *
+ * Usage: java MonteCarloRunner [options]
+ *   --reps N            number of replications (default 100)
+ *   --seed S            seed for the random numbers (default 1)
+ *   --minutes M         length of each replication in minutes (default 60)
+ *   --windows W         number of counters (default 3)
+ *   --layout L          single, multiple or both (default both)
+ *   --rate R            customers per hour for the whole simulation (default 60)
+ *   --hourly R1,R2,...  customers per hour for each hour of the simulation
+ *   --items SPEC        items histogram as items:weight pairs (default 1:1,5:1,10:1,20:1)
+ *   --items-from FILE   use the items histogram of a simulation data file
+ *   --batch S           measure the steady-state wait in batches of S seconds
+ *   --precision P       stop a replication once the half-width of its steady-state
+ *                       wait is under this fraction of the mean (default 0.05)
+ *   --engine E          store, lockstep or check (default store)
+ *
+ * With --batch each replication cuts off its warm up with MSER and stops as soon as
+ * its steady-state wait is known to within --precision, instead of always running
+ * the full --minutes.
+ *
+ * The lockstep engine runs the replications together in a LockstepSimulator instead
+ * of one Store each, and gives the same results. The check engine runs both and
+ * reports whether the results match. --batch only works with the store engine.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class MonteCarloRunner {
+	private static final int LOCKSTEP_GROUP = 256;
+	private String simName = "Monte Carlo";
+	private int reps = 100;
+	private long seed = 1;
+	private int mins = 60;
+	private int numWindows = 3;
+	private boolean[] layouts = {false, true};
+	private double[] hourlyRates = {60};
+	private ItemHistogram items = ItemHistogram.parse("1:1,5:1,10:1,20:1");
+	private int batchLength = 0;
+	private double precision = 0.05;
+	private String engine = "store";
+
+	/**
+	 * The results of one finished replication: its averages and its wait and check out
+	 * histograms merged across the lines and counters. The replication's store is not
+	 * kept, so only this much is held for each replication until it is summarized.
+	 */
+	public static class Replication {
+		private final double averageWaitTime;
+		private final double averageCheckOutTime;
+		private final long checkedOut;
+		private final LatencyHistogram waitTimes;
+		private final LatencyHistogram checkOutTimes;
+		private final boolean steadyState;
+		private final double steadyWaitTime;
+		private final int truncatedTime;
+		private final int stopTime;
+		private final boolean stoppedEarly;
+
+		/**
+		 * Records the results of a replication run to the end
+		 * @param sim the store after the replication finished
+		 */
+		public Replication(Store sim) {
+			this(sim, null);
+		}
+
+		/**
+		 * Records the results of a replication run in batches
+		 * @param monitor the monitor that ran the replication
+		 */
+		public Replication(SteadyStateMonitor monitor) {
+			this(monitor.getStore(), monitor);
+		}
+
+		private Replication(Store sim, SteadyStateMonitor monitor) {
+			SimulationContext context = sim.getContext();
+			this.averageWaitTime = context.getAverageWaitTime();
+			this.averageCheckOutTime = context.getAverageCheckOutTime();
+			this.checkedOut = context.getCustomersCheckedOut();
+			this.waitTimes = sim.getWaitHistogram();
+			this.checkOutTimes = sim.getCheckOutHistogram();
+			this.steadyState = monitor != null;
+			this.steadyWaitTime = monitor == null ? 0.0 : monitor.getSteadyState().getMean();
+			this.truncatedTime = monitor == null ? 0 : monitor.getTruncatedTime();
+			this.stopTime = monitor == null ? 0 : monitor.getStopTime();
+			this.stoppedEarly = monitor != null && monitor.isStoppedEarly();
+		}
+	}
+
+	/**
+	 * The stats of one layout across all of its replications
+	 */
+	public static class Summary {
+		private final boolean multi;
+		private final RunningStats waitTime = new RunningStats();
+		private final RunningStats checkOutTime = new RunningStats();
+		private final RunningStats checkedOut = new RunningStats();
+		private final LatencyHistogram waitTimes = new LatencyHistogram();
+		private final LatencyHistogram checkOutTimes = new LatencyHistogram();
+		private final RunningStats steadyWaitTime = new RunningStats();
+		private final RunningStats truncatedTime = new RunningStats();
+		private final RunningStats stopTime = new RunningStats();
+		private int stoppedEarly;
+
+		public Summary(boolean multi) {
+			this.multi = multi;
+		}
+
+		/**
+		 * Adds the overall stats of one replication
+		 * @param sim the store after the replication finished
+		 */
+		public void add(Store sim) {
+			add(new Replication(sim));
+		}
+
+		/**
+		 * Adds the results of one replication, along with its steady-state results if it
+		 * was run in batches
+		 * @param replication the results of the replication
+		 */
+		public void add(Replication replication) {
+			addReplication(replication.averageWaitTime, replication.averageCheckOutTime, replication.checkedOut);
+			waitTimes.merge(replication.waitTimes);
+			checkOutTimes.merge(replication.checkOutTimes);
+			if(replication.steadyState) {
+				steadyWaitTime.add(replication.steadyWaitTime);
+				truncatedTime.add(replication.truncatedTime);
+				stopTime.add(replication.stopTime);
+				if(replication.stoppedEarly) {
+					stoppedEarly++;
+				}
+			}
+		}
+
+		/**
+		 * Adds the overall stats of every replication run together in lockstep
+		 * @param batch the lockstep simulation after it finished
+		 */
+		public void add(LockstepSimulator batch) {
+			for(int r = 0; r < batch.getReps(); r++) {
+				addReplication(batch.getAverageWaitTime(r), batch.getAverageCheckOutTime(r),
+						batch.getCustomersCheckedOut(r));
+			}
+			waitTimes.merge(batch.getWaitHistogram());
+			checkOutTimes.merge(batch.getCheckOutHistogram());
+		}
+
+		/**
+		 * Adds the averages of one replication, without its histograms
+		 */
+		private void addReplication(double averageWait, double averageCheckOut, long customers) {
+			waitTime.add(averageWait);
+			checkOutTime.add(averageCheckOut);
+			checkedOut.add(customers);
+		}
+
+		/**
+		 * Checks whether another summary has exactly the same stats
+		 * @param other the summary to compare with
+		 * @return true if every average, count and percentile is the same
+		 */
+		public boolean matches(Summary other) {
+			return same(waitTime, other.waitTime) && same(checkOutTime, other.checkOutTime)
+					&& same(checkedOut, other.checkedOut)
+					&& waitTimes.getCount() == other.waitTimes.getCount()
+					&& waitTimes.getMax() == other.waitTimes.getMax()
+					&& waitTimes.percentiles().equals(other.waitTimes.percentiles())
+					&& checkOutTimes.getCount() == other.checkOutTimes.getCount()
+					&& checkOutTimes.getMax() == other.checkOutTimes.getMax()
+					&& checkOutTimes.percentiles().equals(other.checkOutTimes.percentiles());
+		}
+
+		private static boolean same(RunningStats a, RunningStats b) {
+			return a.getCount() == b.getCount() && a.getMean() == b.getMean() && a.getVariance() == b.getVariance();
+		}
+
+		/**
+		 * Adds the steady-state results of one replication run in batches
+		 * @param monitor the monitor that ran the replication
+		 */
+		public void addSteadyState(SteadyStateMonitor monitor) {
+			add(new Replication(monitor));
+		}
+
+		public boolean isMulti() {
+			return multi;
+		}
+
+		public RunningStats getWaitTime() {
+			return waitTime;
+		}
+
+		public RunningStats getCheckOutTime() {
+			return checkOutTime;
+		}
+
+		public RunningStats getCheckedOut() {
+			return checkedOut;
+		}
+
+		/**
+		 * Gets the average wait after the warm up was cut off from each replication
+		 * @return the stats of the steady-state wait, empty if the replications were not run in batches
+		 */
+		public RunningStats getSteadyWaitTime() {
+			return steadyWaitTime;
+		}
+
+		public RunningStats getTruncatedTime() {
+			return truncatedTime;
+		}
+
+		public RunningStats getStopTime() {
+			return stopTime;
+		}
+
+		/**
+		 * Gets the number of replications that stopped before the end because their
+		 * estimate was good enough
+		 * @return the number of replications that stopped early
+		 */
+		public int getStoppedEarly() {
+			return stoppedEarly;
+		}
+
+		/**
+		 * Gets the wait times of every customer in every replication
+		 * @return the merged histogram of wait times
+		 */
+		public LatencyHistogram getWaitTimes() {
+			return waitTimes;
+		}
+
+		/**
+		 * Gets the check out times of every customer in every replication
+		 * @return the merged histogram of check out times
+		 */
+		public LatencyHistogram getCheckOutTimes() {
+			return checkOutTimes;
+		}
+	}
+
+	/**
+	 * Makes the customers for one replication
+	 * @param random the random numbers for the replication
+	 * @return a generator of the customers
+	 */
+	public ArrivalGenerator generator(SplittableRandom random) {
+		return new ArrivalGenerator(simName, mins, numWindows, hourlyRates, items, random);
+	}
+
+	/**
+	 * Runs one replication
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param random the random numbers for the replication
+	 * @return the results of the replication
+	 */
+	public Replication replicate(boolean multi, SplittableRandom random) {
+		Store sim = new Store(numWindows, multi, new SimulationContext());
+		new EventSimulator(sim).run(generator(random), mins*60);
+		return new Replication(sim);
+	}
+
+	/**
+	 * Runs one replication in batches until its steady-state wait is known well enough
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param random the random numbers for the replication
+	 * @return the results of the replication, including its steady-state results
+	 */
+	public Replication replicateSteadyState(boolean multi, SplittableRandom random) {
+		Store sim = new Store(numWindows, multi, new SimulationContext());
+		return new Replication(new SteadyStateMonitor(batchLength, precision, 10).run(sim, generator(random), mins*60));
+	}
+
+	/**
+	 * Runs every replication of a layout in lockstep, in groups of LOCKSTEP_GROUP
+	 * replications spread over the pool. The random numbers are split off the seed
+	 * in the same order as the store engine, so the replications are the same.
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param pool the pool to run the groups on
+	 * @return the stats across the replications
+	 */
+	public Summary runLockstep(boolean multi, ForkJoinPool pool) {
+		SplittableRandom root = new SplittableRandom(seed);
+		List<ForkJoinTask<LockstepSimulator>> runs = new ArrayList<ForkJoinTask<LockstepSimulator>>();
+		for(int first = 0; first < reps; first += LOCKSTEP_GROUP) {
+			ArrivalSource[] sources = new ArrivalSource[Math.min(LOCKSTEP_GROUP, reps - first)];
+			for(int r = 0; r < sources.length; r++) {
+				sources[r] = generator(root.split());
+			}
+			runs.add(pool.submit(() -> {
+				LockstepSimulator batch = new LockstepSimulator(numWindows, multi, sources);
+				batch.run(mins*60);
+				return batch;
+			}));
+		}
+		Summary summary = new Summary(multi);
+		for(ForkJoinTask<LockstepSimulator> run : runs) {
+			summary.add(run.join());
+		}
+		return summary;
+	}
+
+	/**
+	 * Runs every replication of a layout on the pool. Each replication's random
+	 * numbers are split off the seed in order before any of them run.
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param pool the pool to run the replications on
+	 * @return the stats across the replications
+	 */
+	public Summary run(boolean multi, ForkJoinPool pool) {
+		SplittableRandom root = new SplittableRandom(seed);
+		List<ForkJoinTask<Replication>> runs = new ArrayList<ForkJoinTask<Replication>>();
+		for(int i = 0; i < reps; i++) {
+			SplittableRandom random = root.split();
+			runs.add(pool.submit(() -> batchLength > 0 ? replicateSteadyState(multi, random) : replicate(multi, random)));
+		}
+		Summary summary = new Summary(multi);
+		for(ForkJoinTask<Replication> run : runs) {
+			summary.add(run.join());
+		}
+		return summary;
+	}
+
+	/**
+	 * Prints a stat as its mean and the half-width of its 95% confidence interval
+	 * @param label what the stat is
+	 * @param stats the stat across the replications
+	 */
+	private static void printInterval(String label, RunningStats stats) {
+		System.out.printf("\t%s: %.2f +/- %.2f (95%% CI %.2f to %.2f)%n", label, stats.getMean(),
+				stats.getHalfWidth(), stats.getMean() - stats.getHalfWidth(),
+				stats.getMean() + stats.getHalfWidth());
+	}
+
+	/**
+	 * Prints the stats of a layout across its replications
+	 * @param summary the stats to print
+	 */
+	public static void printSummary(Summary summary) {
+		System.out.println("Simulation type: " + (summary.isMulti() ? "Multiple lines" : "Single line"));
+		System.out.println("--------------------------------------------------------");
+		printInterval("Average wait time per customer", summary.getWaitTime());
+		printInterval("Average check out time per customer", summary.getCheckOutTime());
+		printInterval("Customers checked out", summary.getCheckedOut());
+		if(summary.getSteadyWaitTime().getCount() > 0) {
+			printInterval("Steady-state wait time per customer", summary.getSteadyWaitTime());
+			System.out.printf("\tWarm up cut off: %.0f seconds on average%n", summary.getTruncatedTime().getMean());
+			System.out.printf("\tStopped after: %.0f seconds on average (%d of %d replications stopped early)%n",
+					summary.getStopTime().getMean(), summary.getStoppedEarly(), summary.getStopTime().getCount());
+		}
+		System.out.println("\tWait time percentiles: " + summary.getWaitTimes().percentiles());
+		System.out.println("\tCheck out time percentiles: " + summary.getCheckOutTimes().percentiles());
+		System.out.println();
+	}
+
+	/**
+	 * Reads a comma separated list of numbers
+	 * @param list the numbers written out
+	 * @return the numbers
+	 */
+	static double[] parseList(String list) {
+		String[] parts = list.split(",");
+		double[] values = new double[parts.length];
+		for(int i = 0; i < parts.length; i++) {
+			values[i] = Double.parseDouble(parts[i].trim());
+		}
+		return values;
+	}
+
+	/**
+	 * Reads the settings from the command line arguments
+	 * @param args the command line arguments
+	 * @throws IOException if the file for --items-from cannot be read
+	 */
+	public void parseArgs(String[] args) throws IOException {
+		for(int i = 0; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			switch(args[i]) {
+				case "--reps": reps = Integer.parseInt(value); break;
+				case "--seed": seed = Long.parseLong(value); break;
+				case "--minutes": mins = Integer.parseInt(value); break;
+				case "--windows": numWindows = Integer.parseInt(value); break;
+				case "--layout":
+					switch(value) {
+						case "single": layouts = new boolean[] {false}; break;
+						case "multiple": layouts = new boolean[] {true}; break;
+						case "both": layouts = new boolean[] {false, true}; break;
+						default: throw new IllegalArgumentException("Unknown layout " + value);
+					}
+					break;
+				case "--rate": hourlyRates = new double[] {Double.parseDouble(value)}; break;
+				case "--hourly": hourlyRates = parseList(value); break;
+				case "--items": items = ItemHistogram.parse(value); break;
+				case "--items-from": items = ItemHistogram.fromTrace(ArrivalTrace.load(value)); break;
+				case "--batch": batchLength = Integer.parseInt(value); break;
+				case "--precision": precision = Double.parseDouble(value); break;
+				case "--engine":
+					if(!value.equals("store") && !value.equals("lockstep") && !value.equals("check")) {
+						throw new IllegalArgumentException("Unknown engine " + value);
+					}
+					engine = value;
+					break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if(batchLength > 0 && !engine.equals("store")) {
+			throw new IllegalArgumentException("--batch only works with --engine store");
+		}
+	}
+
+	public static void main(String[] args) {
+		MonteCarloRunner runner = new MonteCarloRunner();
+		try {
+			runner.parseArgs(args);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+			return;
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+			return;
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+			return;
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool();
+		System.out.println("Monte Carlo for the simulation: " + runner.simName + " (" + runner.reps
+				+ " replications of " + runner.mins + " minutes with " + runner.numWindows
+				+ " counters, seed " + runner.seed + ")");
+		System.out.println();
+		for(boolean multi : runner.layouts) {
+			if(runner.engine.equals("store")) {
+				printSummary(runner.run(multi, pool));
+			}
+			else {
+				Summary lockstep = runner.runLockstep(multi, pool);
+				printSummary(lockstep);
+				if(runner.engine.equals("check")) {
+					boolean same = lockstep.matches(runner.run(multi, pool));
+					System.out.println("\tSame as one store per replication: " + (same ? "yes" : "NO"));
+					System.out.println();
+				}
+			}
+		}
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,118 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+/**
+ * Simulates the same simulation data file with a line per counter under each
+ * dispatch policy and prints what each policy costs in wait time and throughput
+ * compared to sending customers to the shortest line. The policies all run at
+ * the same time on a fork-join pool, sharing one copy of the file.
+ *
+ * Usage: java PolicyComparison file [--windows N] [--policies a,b,...] [--seed S]
+ *
+ * The number of counters comes from the file unless --windows is given. The
+ * policies default to shortest, round-robin, random, power-of-2 and least-work.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class PolicyComparison {
+	private static final String[] DEFAULT_POLICIES = {"shortest", "round-robin", "random", "power-of-2", "least-work"};
+
+	/**
+	 * Simulates the store from the trace with a line per counter and the named policy
+	 * @param trace the customers to simulate
+	 * @param numWindows the number of counters that are open
+	 * @param policy the name of the dispatch policy
+	 * @param seed the seed for policies that choose at random
+	 * @return the store after the simulation finished
+	 */
+	public static Store simulate(ArrivalTrace trace, int numWindows, String policy, long seed) {
+		Store sim = new Store(numWindows, true, new SimulationContext(), DispatchPolicy.forName(policy, seed));
+		new EventSimulator(sim).run(trace.replay(), trace.getMinutes()*60);
+		return sim;
+	}
+
+	/**
+	 * Prints one row per policy with its throughput and waits, and how its average wait
+	 * compares to the first policy
+	 * @param trace the customers that were simulated
+	 * @param policies the names of the policies
+	 * @param stores the stores after their simulations finished, in the same order
+	 */
+	public static void printReport(ArrivalTrace trace, String[] policies, List<Store> stores) {
+		double hours = trace.getMinutes() / 60.0;
+		double baseline = stores.get(0).getContext().getAverageWaitTime();
+		System.out.printf("%-12s %12s %12s %12s %8s %8s %8s %9s %12s%n", "Policy", "Checked out", "Per hour",
+				"Average wait", "p50", "p90", "p99", "Max wait", "vs " + policies[0]);
+		System.out.println("-----------------------------------------------------------------------------------------------");
+		for(int i = 0; i < policies.length; i++) {
+			Store sim = stores.get(i);
+			SimulationContext context = sim.getContext();
+			LatencyHistogram waits = sim.getWaitHistogram();
+			double average = context.getAverageWaitTime();
+			String change = baseline == 0 ? "-" : String.format("%+.1f%%", (average - baseline) / baseline * 100);
+			System.out.printf("%-12s %12d %12.1f %12.2f %8d %8d %8d %9d %12s%n", policies[i],
+					sim.getTotalCustomersCheckedOut(), sim.getTotalCustomersCheckedOut() / hours, average,
+					waits.getPercentile(50), waits.getPercentile(90), waits.getPercentile(99),
+					context.getMaxWaitTime(), change);
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.out.println("Usage: java PolicyComparison file [--windows N] [--policies a,b,...] [--seed S]");
+			return;
+		}
+		int numWindows = -1;
+		String[] policies = DEFAULT_POLICIES;
+		long seed = 1;
+		for(int i = 1; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			switch(args[i]) {
+				case "--windows": numWindows = Integer.parseInt(args[i + 1]); break;
+				case "--policies": policies = args[i + 1].split(","); break;
+				case "--seed": seed = Long.parseLong(args[i + 1]); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		try {
+			ArrivalTrace trace = ArrivalTrace.load(args[0]);
+			int windows = numWindows > 0 ? numWindows : trace.getNumWindows();
+			long policySeed = seed;
+			ForkJoinPool pool = new ForkJoinPool();
+			List<ForkJoinTask<Store>> runs = new ArrayList<ForkJoinTask<Store>>();
+			for(String policy : policies) {
+				//check the name before starting any runs
+				DispatchPolicy.forName(policy, seed);
+				runs.add(pool.submit(() -> simulate(trace, windows, policy, policySeed)));
+			}
+			List<Store> stores = new ArrayList<Store>();
+			for(ForkJoinTask<Store> run : runs) {
+				stores.add(run.join());
+			}
+			pool.shutdown();
+
+			System.out.println("Dispatch policies for the simulation: " + trace.getName() + " (" + windows
+					+ " counters, " + trace.size() + " customers)");
+			System.out.println();
+			printReport(trace, policies, stores);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+		}
+	}
+}
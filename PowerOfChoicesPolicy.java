@@ -0,0 +1,78 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+/**
+ * Picks a few lines at random for each customer and sends them to the shortest
+ * of those, with ties going to the smallest counter number. Only the sampled
+ * lines are looked at, so the cost of an arrival does not grow with the number
+ * of lines, and sampling just two lines already keeps the lines close to even.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class PowerOfChoicesPolicy implements DispatchPolicy {
+	private final int choices;
+	private final long seed;
+	private SplittableRandom random;
+	private List<Line> lines;
+	private long draws;
+
+	/**
+	 * Creates a policy that samples the given number of lines for each customer
+	 * @param choices the number of lines to sample
+	 * @param seed the seed for the random numbers
+	 */
+	public PowerOfChoicesPolicy(int choices, long seed) {
+		if(choices < 1) {
+			throw new IllegalArgumentException("At least one line has to be sampled");
+		}
+		this.choices = choices;
+		this.seed = seed;
+		this.random = new SplittableRandom(seed);
+	}
+
+	public String getName() {
+		return "power-of-" + choices;
+	}
+
+	public void attach(List<Line> lines) {
+		this.lines = lines;
+	}
+
+	public int chooseLine(int numItems) {
+		draws += choices;
+		int best = random.nextInt(lines.size());
+		int bestLength = lines.get(best).getLineLength();
+		for(int k = 1; k < choices; k++) {
+			int l = random.nextInt(lines.size());
+			int length = lines.get(l).getLineLength();
+			if(length < bestLength || (length == bestLength && l < best)) {
+				best = l;
+				bestLength = length;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Writes how many lines have been sampled so far. The random numbers cannot be
+	 * written themselves, so they are brought back by drawing as many again.
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(seed);
+		out.writeInt(lines.size());
+		out.writeLong(draws);
+	}
+
+	public void readState(DataInput in) throws IOException {
+		random = new SplittableRandom(in.readLong());
+		int bound = in.readInt();
+		draws = in.readLong();
+		for(long i = 0; i < draws; i++) {
+			random.nextInt(bound);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+/**
+ * Records the length of every line and whether every counter is busy at a
+ * fixed interval during the simulation, so congestion can be charted over the
+ * day. The samples go into int and byte arrays that are allocated once and
+ * written out as CSV through a TextChannelWriter whenever they fill up, so
+ * sampling does not create objects while the simulation runs.
+ *
+ * The CSV has a header row followed by one row per sample:
+ * time,line0,...,lineN,counter0,...,counterM with a counter being 1 when it has
+ * a customer and 0 when it is idle. A sample at a time is the state of the
+ * store at the end of that second.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class QueueSampler implements Closeable {
+	private final TextChannelWriter out;
+	private final int interval;
+	private final int numLines;
+	private final int numCounters;
+	private final int[] times;
+	private final int[] lineLengths;
+	private final byte[] busy;
+	private int rows;
+	private int nextSampleTime;
+
+	/**
+	 * Creates a sampler that writes to a CSV file
+	 * @param filename the file to write the samples to
+	 * @param interval the number of seconds between samples
+	 * @param numLines the number of lines in the store
+	 * @param numCounters the number of counters in the store
+	 * @param capacity the number of samples to hold before writing them out
+	 * @throws IOException if the file cannot be written
+	 */
+	public QueueSampler(String filename, int interval, int numLines, int numCounters, int capacity) throws IOException {
+		if(interval < 1 || capacity < 1) {
+			throw new IllegalArgumentException("The interval and capacity must be positive");
+		}
+		this.out = new TextChannelWriter(filename);
+		this.interval = interval;
+		this.numLines = numLines;
+		this.numCounters = numCounters;
+		this.times = new int[capacity];
+		this.lineLengths = new int[capacity * numLines];
+		this.busy = new byte[capacity * numCounters];
+		this.rows = 0;
+		this.nextSampleTime = 0;
+		writeHeader();
+	}
+
+	/**
+	 * Creates a sampler sized for a store
+	 * @param filename the file to write the samples to
+	 * @param interval the number of seconds between samples
+	 * @param sim the store that will be sampled
+	 * @return the sampler
+	 * @throws IOException if the file cannot be written
+	 */
+	public static QueueSampler forStore(String filename, int interval, Store sim) throws IOException {
+		return new QueueSampler(filename, interval, sim.getNumLines(), sim.getNumCounters(), 4096);
+	}
+
+	/**
+	 * Writes the names of the columns
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeHeader() throws IOException {
+		out.writeText("time");
+		for(int l = 0; l < numLines; l++) {
+			out.writeText(",line");
+			out.writeLong(l);
+		}
+		for(int i = 0; i < numCounters; i++) {
+			out.writeText(",counter");
+			out.writeLong(i);
+		}
+		out.writeByte('\n');
+	}
+
+	/**
+	 * Records samples of the store for every sample time up to and including the given
+	 * time. The store has not changed since the last time it was updated, so all the
+	 * samples it missed while the clock jumped ahead have the same values.
+	 * @param time the last second to sample
+	 * @param sim the store to sample
+	 */
+	public void sampleUntil(int time, Store sim) {
+		while(nextSampleTime <= time) {
+			if(rows == times.length) {
+				flush();
+			}
+			times[rows] = nextSampleTime;
+			for(int l = 0; l < numLines; l++) {
+				lineLengths[rows * numLines + l] = sim.getLineLength(l);
+			}
+			for(int i = 0; i < numCounters; i++) {
+				busy[rows * numCounters + i] = (byte) (sim.isCounterBusy(i) ? 1 : 0);
+			}
+			rows++;
+			nextSampleTime += interval;
+		}
+	}
+
+	/**
+	 * Writes out the samples that are being held
+	 */
+	public void flush() {
+		try {
+			for(int r = 0; r < rows; r++) {
+				out.writeLong(times[r]);
+				for(int l = 0; l < numLines; l++) {
+					out.writeByte(',');
+					out.writeLong(lineLengths[r * numLines + l]);
+				}
+				for(int i = 0; i < numCounters; i++) {
+					out.writeByte(',');
+					out.writeByte('0' + busy[r * numCounters + i]);
+				}
+				out.writeByte('\n');
+			}
+			rows = 0;
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes out any samples still being held and closes the file
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+}
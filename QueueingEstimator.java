@@ -0,0 +1,300 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.InputMismatchException;
+/**
+ * Estimates the waits of the store from queueing formulas instead of simulating
+ * it, so counter counts that clearly do not work can be ruled out before running
+ * the full simulation. The arrival rate and the spread of the times between
+ * arrivals come from the simulation data, and the check out times come from the
+ * customers' items with the item and payment times of the Counter.
+ *
+ * A single line is treated as one queue feeding all the counters (M/G/c, using
+ * Erlang C with the Allen-Cunneen correction for the spread of the arrival and
+ * check out times). A line per counter is treated as separate queues that each
+ * get an even share of the customers (M/G/1, using Pollaczek-Khinchine), which
+ * overestimates the wait when customers pick the shortest line. Once the data has
+ * been read, each estimate takes a few microseconds.
+ *
+ * Usage: java QueueingEstimator file minWindows maxWindows [--target S] [--margin M] [--simulate]
+ *
+ * Each counter count is marked UNSTABLE when customers arrive faster than the
+ * counters can check them out, UNDERSTAFFED when the estimated wait is more than
+ * margin times the target wait, OVERPROVISIONED when one counter fewer would still
+ * wait less than the target divided by the margin, and BORDERLINE otherwise. With
+ * --simulate only the borderline counts are simulated.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class QueueingEstimator {
+	private final double arrivalRate;
+	private final double meanService;
+	private final double arrivalVariability;
+	private final double serviceVariability;
+
+	/**
+	 * The kinds of estimates, from the ones with too few counters to the ones with too many
+	 */
+	public enum Verdict {
+		UNSTABLE, UNDERSTAFFED, BORDERLINE, OVERPROVISIONED
+	}
+
+	/**
+	 * The estimated waits of the store with one counter count and line set up
+	 */
+	public static class Estimate {
+		private final int numWindows;
+		private final boolean multi;
+		private final double utilization;
+		private final double probabilityOfWaiting;
+		private final double averageWaitTime;
+		private final double averageLineLength;
+
+		public Estimate(int numWindows, boolean multi, double utilization, double probabilityOfWaiting,
+				double averageWaitTime, double averageLineLength) {
+			this.numWindows = numWindows;
+			this.multi = multi;
+			this.utilization = utilization;
+			this.probabilityOfWaiting = probabilityOfWaiting;
+			this.averageWaitTime = averageWaitTime;
+			this.averageLineLength = averageLineLength;
+		}
+
+		public int getNumWindows() {
+			return numWindows;
+		}
+
+		public boolean isMulti() {
+			return multi;
+		}
+
+		/**
+		 * Gets the fraction of the time each counter is busy
+		 * @return the utilization of the counters, 1 or more when they cannot keep up
+		 */
+		public double getUtilization() {
+			return utilization;
+		}
+
+		public double getProbabilityOfWaiting() {
+			return probabilityOfWaiting;
+		}
+
+		/**
+		 * Gets the average wait in line in seconds
+		 * @return the average wait or infinity when the counters cannot keep up
+		 */
+		public double getAverageWaitTime() {
+			return averageWaitTime;
+		}
+
+		/**
+		 * Gets the average number of customers waiting across all the lines
+		 * @return the average number waiting or infinity when the counters cannot keep up
+		 */
+		public double getAverageLineLength() {
+			return averageLineLength;
+		}
+
+		public boolean isStable() {
+			return utilization < 1;
+		}
+	}
+
+	/**
+	 * Creates an estimator from the rates and spreads of the arrivals and check outs
+	 * @param arrivalRate the average number of customers arriving per second
+	 * @param meanService the average check out time in seconds
+	 * @param arrivalVariability the squared coefficient of variation of the times between
+	 * arrivals (1 for arrivals at random)
+	 * @param serviceVariability the squared coefficient of variation of the check out times
+	 */
+	public QueueingEstimator(double arrivalRate, double meanService, double arrivalVariability,
+			double serviceVariability) {
+		if(arrivalRate <= 0 || meanService <= 0) {
+			throw new IllegalArgumentException("The arrival rate and check out time must be positive");
+		}
+		this.arrivalRate = arrivalRate;
+		this.meanService = meanService;
+		this.arrivalVariability = arrivalVariability;
+		this.serviceVariability = serviceVariability;
+	}
+
+	/**
+	 * Measures the arrivals and check out times of the customers from a source in one pass
+	 * @param source the customers to measure
+	 * @return the estimator for those customers
+	 */
+	public static QueueingEstimator fit(ArrivalSource source) {
+		RunningStats service = new RunningStats();
+		RunningStats gaps = new RunningStats();
+		int lastTime = -1;
+		while(source.next()) {
+			service.add(Counter.getCheckOutTime(source.getNumItems()));
+			if(lastTime >= 0 && source.getTime() >= lastTime) {
+				gaps.add(source.getTime() - lastTime);
+			}
+			lastTime = source.getTime();
+		}
+		if(service.getCount() == 0) {
+			throw new IllegalArgumentException("There are no customers to estimate from");
+		}
+		double rate = service.getCount() / (source.getMinutes() * 60.0);
+		double arrivalVariability = gaps.getCount() < 2 || gaps.getMean() == 0 ? 1.0
+				: gaps.getVariance() / (gaps.getMean() * gaps.getMean());
+		double mean = service.getMean();
+		return new QueueingEstimator(rate, mean, arrivalVariability, service.getVariance() / (mean * mean));
+	}
+
+	public double getArrivalRate() {
+		return arrivalRate;
+	}
+
+	public double getMeanService() {
+		return meanService;
+	}
+
+	/**
+	 * Estimates the waits of the store with the given counter count and line set up
+	 * @param numWindows the number of counters
+	 * @param multi true for a line per counter, false for a single line
+	 * @return the estimate
+	 */
+	public Estimate estimate(int numWindows, boolean multi) {
+		return multi ? estimateLanes(numWindows) : estimateSingleLine(numWindows);
+	}
+
+	/**
+	 * Estimates one line feeding every counter as an M/G/c queue
+	 * @param numWindows the number of counters
+	 * @return the estimate
+	 */
+	private Estimate estimateSingleLine(int numWindows) {
+		double load = arrivalRate * meanService;
+		double utilization = load / numWindows;
+		if(utilization >= 1) {
+			return new Estimate(numWindows, false, utilization, 1.0, Double.POSITIVE_INFINITY,
+					Double.POSITIVE_INFINITY);
+		}
+		//Erlang B by its recurrence, which stays accurate for large counter counts
+		double blocking = 1.0;
+		for(int k = 1; k <= numWindows; k++) {
+			blocking = load * blocking / (k + load * blocking);
+		}
+		double erlangC = blocking / (1 - utilization * (1 - blocking));
+		double wait = erlangC * meanService / (numWindows - load)
+				* (arrivalVariability + serviceVariability) / 2;
+		return new Estimate(numWindows, false, utilization, erlangC, wait, arrivalRate * wait);
+	}
+
+	/**
+	 * Estimates a line per counter as separate M/G/1 queues that each get an even share
+	 * of the customers
+	 * @param numWindows the number of counters
+	 * @return the estimate
+	 */
+	private Estimate estimateLanes(int numWindows) {
+		double laneRate = arrivalRate / numWindows;
+		double utilization = laneRate * meanService;
+		if(utilization >= 1) {
+			return new Estimate(numWindows, true, utilization, 1.0, Double.POSITIVE_INFINITY,
+					Double.POSITIVE_INFINITY);
+		}
+		//splitting the arrivals evenly makes each lane's arrivals closer to random
+		double laneVariability = 1 - 1.0 / numWindows + arrivalVariability / numWindows;
+		double wait = utilization / (1 - utilization) * meanService * (laneVariability + serviceVariability) / 2;
+		return new Estimate(numWindows, true, utilization, utilization, wait, arrivalRate * wait);
+	}
+
+	/**
+	 * Decides whether a counter count is worth simulating
+	 * @param numWindows the number of counters
+	 * @param multi true for a line per counter, false for a single line
+	 * @param targetWait the average wait in seconds the store is aiming for
+	 * @param margin how far the estimate has to be from the target to be sure of it
+	 * @return the verdict for the counter count
+	 */
+	public Verdict classify(int numWindows, boolean multi, double targetWait, double margin) {
+		Estimate estimate = estimate(numWindows, multi);
+		if(!estimate.isStable()) {
+			return Verdict.UNSTABLE;
+		}
+		if(estimate.getAverageWaitTime() > targetWait * margin) {
+			return Verdict.UNDERSTAFFED;
+		}
+		if(numWindows > 1) {
+			Estimate fewer = estimate(numWindows - 1, multi);
+			if(fewer.isStable() && fewer.getAverageWaitTime() < targetWait / margin) {
+				return Verdict.OVERPROVISIONED;
+			}
+		}
+		return Verdict.BORDERLINE;
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 3) {
+			System.out.println("Usage: java QueueingEstimator file minWindows maxWindows [--target S] [--margin M] [--simulate]");
+			return;
+		}
+		int minWindows = Integer.parseInt(args[1]);
+		int maxWindows = Integer.parseInt(args[2]);
+		double target = 60;
+		double margin = 2;
+		boolean simulate = false;
+		for(int i = 3; i < args.length; i++) {
+			if((args[i].equals("--target") || args[i].equals("--margin")) && i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			switch(args[i]) {
+				case "--target": target = Double.parseDouble(args[++i]); break;
+				case "--margin": margin = Double.parseDouble(args[++i]); break;
+				case "--simulate": simulate = true; break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		try {
+			ArrivalTrace trace = ArrivalTrace.load(args[0]);
+			long start = System.nanoTime();
+			QueueingEstimator estimator = fit(trace.replay());
+			long fitted = System.nanoTime();
+			System.out.printf("Estimates for the simulation: %s (%.2f customers per minute, %.1f second average check out)%n",
+					trace.getName(), estimator.getArrivalRate() * 60, estimator.getMeanService());
+			System.out.println();
+			System.out.printf("%-10s %-9s %12s %14s %14s %-16s %14s%n", "Counters", "Lines", "Utilization",
+					"Average wait", "Line length", "Verdict", "Simulated wait");
+			System.out.println("------------------------------------------------------------------------------------------------");
+			long estimating = 0;
+			for(boolean multi : new boolean[] {false, true}) {
+				for(int n = minWindows; n <= maxWindows; n++) {
+					long before = System.nanoTime();
+					Estimate estimate = estimator.estimate(n, multi);
+					Verdict verdict = estimator.classify(n, multi, target, margin);
+					estimating += System.nanoTime() - before;
+					String simulated = "";
+					if(simulate && verdict == Verdict.BORDERLINE) {
+						Store sim = new Store(n, multi, new SimulationContext());
+						new EventSimulator(sim).run(trace.replay(), trace.getMinutes()*60);
+						simulated = String.format("%.2f", sim.getContext().getAverageWaitTime());
+					}
+					System.out.printf("%-10d %-9s %12.3f %14.2f %14.2f %-16s %14s%n", n, multi ? "Multiple" : "Single",
+							estimate.getUtilization(), estimate.getAverageWaitTime(), estimate.getAverageLineLength(),
+							verdict, simulated);
+				}
+			}
+			System.out.println();
+			System.out.printf("Read the data in %.1f ms and made %d estimates in %.1f microseconds%n",
+					(fitted - start) / 1e6, 2 * (maxWindows - minWindows + 1), estimating / 1e3);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+/**
+ * Sends each customer to a line picked at random, no matter how long the lines
+ * are. The same seed always sends the same customers to the same lines.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class RandomPolicy implements DispatchPolicy {
+	private final long seed;
+	private SplittableRandom random;
+	private int numLines;
+	private long draws;
+
+	/**
+	 * Creates a policy that picks lines at random
+	 * @param seed the seed for the random numbers
+	 */
+	public RandomPolicy(long seed) {
+		this.seed = seed;
+		this.random = new SplittableRandom(seed);
+	}
+
+	public String getName() {
+		return "random";
+	}
+
+	public void attach(List<Line> lines) {
+		numLines = lines.size();
+	}
+
+	public int chooseLine(int numItems) {
+		draws++;
+		return random.nextInt(numLines);
+	}
+
+	/**
+	 * Writes how many lines have been picked so far. The random numbers cannot be
+	 * written themselves, so they are brought back by drawing as many again.
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(seed);
+		out.writeInt(numLines);
+		out.writeLong(draws);
+	}
+
+	public void readState(DataInput in) throws IOException {
+		random = new SplittableRandom(in.readLong());
+		int bound = in.readInt();
+		draws = in.readLong();
+		for(long i = 0; i < draws; i++) {
+			random.nextInt(bound);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Keeps the results of finished simulations in a folder so running the same file
+ * with the same settings again can reuse them instead of simulating it again. Each
+ * result is a short piece of text stored in its own file, named by a SHA-256 hash
+ * of the simulation data file's contents, the settings and ENGINE_VERSION. Renaming
+ * or moving a data file still finds its results, and changing a single customer in
+ * it does not.
+ *
+ * The folder is kept under a size limit by deleting the results that were used
+ * longest ago. The last time a result was used is kept as its file's modified
+ * time, so the order survives between runs.
+ *
+ * The cache only saves time: a result that cannot be read counts as missing and a
+ * result that cannot be written is not kept, so the simulation always goes on.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ResultCache {
+	/** Changed whenever a change to the simulation would change its results, so old results are not reused */
+	public static final int ENGINE_VERSION = 1;
+	private static final String SUFFIX = ".result";
+	private final Path dir;
+	private final long maxBytes;
+	private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long totalBytes;
+	private int hits;
+	private int misses;
+
+	/**
+	 * Opens the cache in a folder, creating the folder if it does not exist
+	 * @param dir the folder for the results
+	 * @param maxBytes the most space the results may take up
+	 * @throws IOException if the folder cannot be created or listed
+	 */
+	public ResultCache(Path dir, long maxBytes) throws IOException {
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(dir);
+		List<Path> entries = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+			for(Path entry : stream) {
+				entries.add(entry);
+			}
+		}
+		//oldest first, so the most recently used end up at the end of the map
+		entries.sort((a, b) -> lastUsed(a).compareTo(lastUsed(b)));
+		for(Path entry : entries) {
+			String name = entry.getFileName().toString();
+			long size = Files.size(entry);
+			sizes.put(name.substring(0, name.length() - SUFFIX.length()), size);
+			totalBytes += size;
+		}
+		evict();
+	}
+
+	private static FileTime lastUsed(Path entry) {
+		try {
+			return Files.getLastModifiedTime(entry);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	/**
+	 * Hashes the contents of a file
+	 * @param file the file to hash
+	 * @return the SHA-256 hash of the file as hex
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String hashFile(Path file) throws IOException {
+		MessageDigest digest = sha256();
+		byte[] buffer = new byte[65536];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Makes the key for a result
+	 * @param traceHash the hash of the simulation data file from hashFile
+	 * @param settings everything else the result depends on, written out as text
+	 * @return the key for the result
+	 */
+	public static String key(String traceHash, String settings) {
+		MessageDigest digest = sha256();
+		digest.update((traceHash + "\n" + settings + "\nengine " + ENGINE_VERSION).getBytes(StandardCharsets.UTF_8));
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			//every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Looks up a result and marks it as just used
+	 * @param key the key from key()
+	 * @return the result, or null if it is not in the cache
+	 */
+	public synchronized String get(String key) {
+		//looking it up moves it to the most recently used end
+		if(sizes.get(key) == null) {
+			misses++;
+			return null;
+		}
+		Path entry = dir.resolve(key + SUFFIX);
+		try {
+			String value = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8);
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			hits++;
+			return value;
+		} catch (NoSuchFileException e) {
+			//deleted by someone else sharing the folder
+			totalBytes -= sizes.remove(key);
+		} catch (IOException e) {
+			//read it as missing
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Keeps a result, then deletes the results used longest ago until the cache fits
+	 * in its size limit again
+	 * @param key the key from key()
+	 * @param value the result
+	 */
+	public synchronized void put(String key, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		Path entry = dir.resolve(key + SUFFIX);
+		try {
+			//written to the side first so a reader never sees half a result
+			Path temp = Files.createTempFile(dir, key, ".tmp");
+			Files.write(temp, bytes);
+			Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			return;
+		}
+		Long old = sizes.put(key, (long) bytes.length);
+		totalBytes += bytes.length - (old == null ? 0 : old);
+		evict();
+	}
+
+	/**
+	 * Deletes the results used longest ago until the cache fits in its size limit
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> oldest = sizes.entrySet().iterator();
+		while(totalBytes > maxBytes && oldest.hasNext()) {
+			Map.Entry<String, Long> entry = oldest.next();
+			try {
+				Files.deleteIfExists(dir.resolve(entry.getKey() + SUFFIX));
+			} catch (IOException e) {
+				//still dropped from the cache, it is just left in the folder
+			}
+			totalBytes -= entry.getValue();
+			oldest.remove();
+		}
+	}
+
+	/**
+	 * Gets the number of lookups that found a result
+	 * @return the number of hits
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of lookups that did not find a result
+	 * @return the number of misses
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+}
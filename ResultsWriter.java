@@ -0,0 +1,129 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+/**
+ * Writes the stats of finished simulations, and optionally a record of every
+ * customer, to a file that other programs can read instead of the text printStats
+ * prints. Everything goes through a TextChannelWriter, which writes numbers and
+ * text without creating objects, so writing a record per customer keeps up with
+ * the simulation.
+ *
+ * A run is named by the caller, usually with the data file it came from. The
+ * methods can be called from several simulations at once; each record is written
+ * whole, in the order the calls happen.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public abstract class ResultsWriter implements Closeable {
+	private final TextChannelWriter out;
+
+	/**
+	 * Creates a writer for a file, replacing anything already in it
+	 * @param filename the file to write to
+	 * @throws IOException if the file cannot be written
+	 */
+	protected ResultsWriter(String filename) throws IOException {
+		this.out = new TextChannelWriter(filename);
+	}
+
+	/**
+	 * Creates the writer for a file's format: CSV for a file ending in .csv and JSON
+	 * lines for anything else
+	 * @param filename the file to write to
+	 * @return the writer
+	 * @throws IOException if the file cannot be written
+	 */
+	public static ResultsWriter open(String filename) throws IOException {
+		if(filename.toLowerCase().endsWith(".csv")) {
+			return new CsvResultsWriter(filename);
+		}
+		return new JsonLinesResultsWriter(filename);
+	}
+
+	/**
+	 * Writes the stats of a store along with its lines and counters
+	 * @param run the name of the run
+	 * @param stats the stats to write
+	 */
+	public abstract void writeStats(String run, StoreStats stats);
+
+	/**
+	 * Writes the record of one customer who finished checking out
+	 * @param run the name of the run
+	 * @param multi true if there was a line per counter, false for a single line
+	 * @param id the customer number
+	 * @param enterTime the time the customer got in line
+	 * @param startTime the time the customer left the line for a counter
+	 * @param finishTime the time the customer finished checking out
+	 * @param counter the counter that checked the customer out
+	 */
+	public abstract void writeCustomer(String run, boolean multi, int id, int enterTime, int startTime,
+			int finishTime, int counter);
+
+	/**
+	 * Makes an observer that writes every customer of a store as they finish
+	 * @param run the name of the run
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @return the observer to give to the store
+	 */
+	public CustomerObserver customersFor(String run, boolean multi) {
+		return (id, enterTime, startTime, finishTime, counter)
+				-> writeCustomer(run, multi, id, enterTime, startTime, finishTime, counter);
+	}
+
+	/**
+	 * Adds a byte to the buffer, writing the buffer out if it is full
+	 * @param b the byte to add
+	 * @throws IOException if the file cannot be written
+	 */
+	protected void writeByte(int b) throws IOException {
+		out.writeByte(b);
+	}
+
+	/**
+	 * Adds a whole number to the buffer as text without creating a string
+	 * @param value the number to add
+	 * @throws IOException if the file cannot be written
+	 */
+	protected void writeLong(long value) throws IOException {
+		out.writeLong(value);
+	}
+
+	/**
+	 * Adds a decimal number to the buffer, written so it reads back exactly
+	 * @param value the number to add
+	 * @throws IOException if the file cannot be written
+	 */
+	protected void writeDouble(double value) throws IOException {
+		out.writeDouble(value);
+	}
+
+	/**
+	 * Adds text to the buffer as UTF-8 without copying it into a byte array
+	 * @param text the text to add
+	 * @throws IOException if the file cannot be written
+	 */
+	protected void writeText(String text) throws IOException {
+		out.writeText(text);
+	}
+
+	/**
+	 * Writes out everything written so far
+	 */
+	public synchronized void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes out everything written so far and closes the file
+	 */
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
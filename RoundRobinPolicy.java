@@ -0,0 +1,39 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+/**
+ * Sends the customers to the lines in turn, starting with the first line, no
+ * matter how long the lines are.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class RoundRobinPolicy implements DispatchPolicy {
+	private int numLines;
+	private int next;
+
+	public String getName() {
+		return "round-robin";
+	}
+
+	public void attach(List<Line> lines) {
+		numLines = lines.size();
+		next = 0;
+	}
+
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(next);
+	}
+
+	public void readState(DataInput in) throws IOException {
+		next = in.readInt() % numLines;
+	}
+
+	public int chooseLine(int numItems) {
+		int chosen = next;
+		next = next + 1 == numLines ? 0 : next + 1;
+		return chosen;
+	}
+}
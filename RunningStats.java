@@ -0,0 +1,92 @@
+/**
+ * Keeps the count, mean and variance of a series of values without keeping the
+ * values, using Welford's method. Two sets of stats can be merged, so stats
+ * gathered by separate simulations can be combined at the end.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class RunningStats {
+	/** Two-sided 95% Student t critical values for 1 to 30 degrees of freedom */
+	private static final double[] T_95 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365,
+			2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093,
+			2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+	/** Degrees of freedom past the table where the critical value is known, ending at infinity */
+	private static final double[] TAIL_DF = {30, 40, 60, 120, Double.POSITIVE_INFINITY};
+	/** Two-sided 95% Student t critical values for TAIL_DF */
+	private static final double[] TAIL_T_95 = {2.042, 2.021, 2.000, 1.980, 1.960};
+	private long count;
+	private double mean;
+	private double sumSquares;
+
+	/**
+	 * Adds a value to the stats
+	 * @param value the value to add
+	 */
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		sumSquares += delta * (value - mean);
+	}
+
+	/**
+	 * Adds all the values from another set of stats to these stats
+	 * @param other the stats to merge in
+	 */
+	public void merge(RunningStats other) {
+		if(other.count == 0) {
+			return;
+		}
+		long total = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / total;
+		sumSquares += other.sumSquares + delta * delta * ((double) count * other.count / total);
+		count = total;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Gets the sample variance of the values
+	 * @return the sample variance or 0 if there are fewer than two values
+	 */
+	public double getVariance() {
+		return count < 2 ? 0.0 : sumSquares / (count - 1);
+	}
+
+	/**
+	 * Gets the half-width of the 95% confidence interval for the mean
+	 * @return the half-width of the confidence interval or infinity with fewer than two values
+	 */
+	public double getHalfWidth() {
+		if(count < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		long df = count - 1;
+		double t = df <= T_95.length ? T_95[(int) df - 1] : tailT95(df);
+		return t * Math.sqrt(getVariance() / count);
+	}
+
+	/**
+	 * Gets the critical value for more degrees of freedom than the table has by
+	 * interpolating in 1/df, so it moves smoothly toward 1.960
+	 */
+	private static double tailT95(long df) {
+		int k = 0;
+		while(df > TAIL_DF[k + 1]) {
+			k++;
+		}
+		double x = 1.0 / df;
+		double from = 1.0 / TAIL_DF[k];
+		double to = 1.0 / TAIL_DF[k + 1];
+		return TAIL_T_95[k] + (TAIL_T_95[k + 1] - TAIL_T_95[k]) * (from - x) / (from - to);
+	}
+}
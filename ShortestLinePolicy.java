@@ -0,0 +1,29 @@
+import java.util.List;
+/**
+ * Sends each customer to the line with the fewest customers waiting, with ties
+ * going to the smallest counter number. The customer being checked out at a
+ * counter does not count towards its line. The lines keep their lengths in a
+ * LineIndex, so finding the shortest line does not look at every line.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ShortestLinePolicy implements DispatchPolicy {
+	private LineIndex shortestLines;
+
+	public String getName() {
+		return "shortest";
+	}
+
+	public void attach(List<Line> lines) {
+		shortestLines = new LineIndex(lines.size());
+		for(int i = 0; i < lines.size(); i++) {
+			lines.get(i).setIndex(shortestLines, i);
+		}
+	}
+
+	public int chooseLine(int numItems) {
+		return shortestLines.getSmallest();
+	}
+}
@@ -0,0 +1,177 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+/**
+ * Holds everything that belongs to one run of the simulation: the clock, the
+ * sequence used to number the customers and the overall stats for the run.
+ * Nothing is shared between contexts, so separate simulations can run at the
+ * same time without changing each other's results.
+ *
+ * The overall wait is measured from the time a customer entered the line to the
+ * time they left it for a counter, and the check out time is measured the same
+ * way as the counters measure it, from entering the line to finishing at the counter.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class SimulationContext {
+	private final Clock clock;
+	private int nextCustomerId;
+	private long customersArrived;
+	private long customersServed;
+	private long totalWaitTime;
+	private int maxWaitTime;
+	private long customersCheckedOut;
+	private long totalCheckOutTime;
+	private CustomerObserver observer;
+
+	/**
+	 * Creates a context with its own clock starting at 0
+	 */
+	public SimulationContext() {
+		this(new Clock());
+	}
+
+	/**
+	 * Creates a context around an existing clock
+	 * @param clock the clock for the simulation
+	 */
+	public SimulationContext(Clock clock) {
+		this.clock = clock;
+		this.nextCustomerId = 1;
+	}
+
+	/**
+	 * Gets the clock for the simulation
+	 * @return the clock for the simulation
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Hands out the next customer number in the order the customers are created
+	 * @return the number for the next customer
+	 */
+	public int nextCustomerId() {
+		return nextCustomerId++;
+	}
+
+	/**
+	 * Records a customer arriving at the checkout area
+	 */
+	public void recordArrival() {
+		customersArrived++;
+	}
+
+	/**
+	 * Records a customer leaving the line for a counter
+	 * @param waitTime how long the customer waited in line
+	 */
+	public void recordWait(int waitTime) {
+		customersServed++;
+		totalWaitTime += waitTime;
+		if (waitTime > maxWaitTime) {
+			maxWaitTime = waitTime;
+		}
+	}
+
+	/**
+	 * Records a customer finishing at a counter
+	 * @param checkOutTime how long the customer took to check out
+	 */
+	public void recordCheckOut(int checkOutTime) {
+		customersCheckedOut++;
+		totalCheckOutTime += checkOutTime;
+	}
+
+	/**
+	 * Sets the observer that is told about every customer as they finish checking out.
+	 * The observer is not part of a checkpoint.
+	 * @param observer the observer or null to stop telling anyone
+	 */
+	public void setCustomerObserver(CustomerObserver observer) {
+		this.observer = observer;
+	}
+
+	/**
+	 * Gets the observer that is told about every customer as they finish checking out
+	 * @return the observer or null if there is none
+	 */
+	public CustomerObserver getCustomerObserver() {
+		return observer;
+	}
+
+	/**
+	 * Writes the time and the overall stats for a checkpoint
+	 * @param out where to write the stats
+	 * @throws IOException if they cannot be written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(clock.getTime());
+		out.writeInt(nextCustomerId);
+		out.writeLong(customersArrived);
+		out.writeLong(customersServed);
+		out.writeLong(totalWaitTime);
+		out.writeInt(maxWaitTime);
+		out.writeLong(customersCheckedOut);
+		out.writeLong(totalCheckOutTime);
+	}
+
+	/**
+	 * Moves the clock forward to the time written by writeState and replaces the stats
+	 * @param in where to read the stats from
+	 * @throws IOException if they cannot be read
+	 */
+	public void readState(DataInput in) throws IOException {
+		clock.advanceTo(in.readInt());
+		nextCustomerId = in.readInt();
+		customersArrived = in.readLong();
+		customersServed = in.readLong();
+		totalWaitTime = in.readLong();
+		maxWaitTime = in.readInt();
+		customersCheckedOut = in.readLong();
+		totalCheckOutTime = in.readLong();
+	}
+
+	public long getCustomersArrived() {
+		return customersArrived;
+	}
+
+	public long getCustomersServed() {
+		return customersServed;
+	}
+
+	public long getTotalWaitTime() {
+		return totalWaitTime;
+	}
+
+	public int getMaxWaitTime() {
+		return maxWaitTime;
+	}
+
+	public long getCustomersCheckedOut() {
+		return customersCheckedOut;
+	}
+
+	public long getTotalCheckOutTime() {
+		return totalCheckOutTime;
+	}
+
+	/**
+	 * Gets the average wait in line for the customers that made it to a counter
+	 * @return the average wait or 0 if no customer has left the line
+	 */
+	public double getAverageWaitTime() {
+		return customersServed == 0 ? 0.0 : (double) totalWaitTime / customersServed;
+	}
+
+	/**
+	 * Gets the average check out time for the customers that finished checking out
+	 * @return the average check out time or 0 if no customer has finished
+	 */
+	public double getAverageCheckOutTime() {
+		return customersCheckedOut == 0 ? 0.0 : (double) totalCheckOutTime / customersCheckedOut;
+	}
+}
@@ -0,0 +1,163 @@
+import java.util.Objects;
+/**
+ * Holds the overall stats from one finished simulation of the store along with
+ * the settings it was run with, so the results of many simulations can be
+ * compared after they finish. The waits are measured from the time a customer
+ * enters the line. A simulation that could not be run keeps its error instead.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class SimulationResult {
+	private final int numWindows;
+	private final boolean multi;
+	private final int customersCheckedOut;
+	private final double averageWaitTime;
+	private final long waitP90;
+	private final long waitP99;
+	private final double averageCheckOutTime;
+	private final int maxLineLength;
+	private final String error;
+
+	/**
+	 * Records the overall stats of a store at the end of its simulation
+	 * @param numWindows the number of counters in the store
+	 * @param multi true if there was a line per counter, false for a single line
+	 * @param sim the store after the simulation finished
+	 */
+	public SimulationResult(int numWindows, boolean multi, Store sim) {
+		this.numWindows = numWindows;
+		this.multi = multi;
+		this.customersCheckedOut = sim.getTotalCustomersCheckedOut();
+		this.averageWaitTime = sim.getContext().getAverageWaitTime();
+		LatencyHistogram waits = sim.getWaitHistogram();
+		this.waitP90 = waits.getPercentile(90);
+		this.waitP99 = waits.getPercentile(99);
+		this.averageCheckOutTime = sim.getContext().getAverageCheckOutTime();
+		this.maxLineLength = sim.getMaxLineLength();
+		this.error = null;
+	}
+
+	private SimulationResult(int numWindows, boolean multi, int customersCheckedOut, double averageWaitTime,
+			long waitP90, long waitP99, double averageCheckOutTime, int maxLineLength, String error) {
+		this.numWindows = numWindows;
+		this.multi = multi;
+		this.customersCheckedOut = customersCheckedOut;
+		this.averageWaitTime = averageWaitTime;
+		this.waitP90 = waitP90;
+		this.waitP99 = waitP99;
+		this.averageCheckOutTime = averageCheckOutTime;
+		this.maxLineLength = maxLineLength;
+		this.error = error;
+	}
+
+	/**
+	 * Records a simulation that could not be run
+	 * @param numWindows the number of counters in the store
+	 * @param multi true if there was to be a line per counter, false for a single line
+	 * @param error why it could not be run
+	 * @return the result with the error
+	 */
+	public static SimulationResult failed(int numWindows, boolean multi, String error) {
+		return new SimulationResult(numWindows, multi, 0, 0.0, 0, 0, 0.0, 0, error);
+	}
+
+	/**
+	 * Writes the result of a simulation that ran as one line of text that parse reads
+	 * back exactly
+	 * @return the result as text
+	 */
+	public String format() {
+		return numWindows + " " + multi + " " + customersCheckedOut + " " + averageWaitTime + " " + waitP90 + " "
+				+ waitP99 + " " + averageCheckOutTime + " " + maxLineLength;
+	}
+
+	/**
+	 * Reads a result written by format
+	 * @param text the result as text
+	 * @return the result
+	 * @throws IllegalArgumentException if the text is not a result
+	 */
+	public static SimulationResult parse(String text) {
+		String[] parts = text.trim().split(" ");
+		if(parts.length != 8) {
+			throw new IllegalArgumentException("Not a simulation result: " + text);
+		}
+		return new SimulationResult(Integer.parseInt(parts[0]), Boolean.parseBoolean(parts[1]),
+				Integer.parseInt(parts[2]), Double.parseDouble(parts[3]), Long.parseLong(parts[4]),
+				Long.parseLong(parts[5]), Double.parseDouble(parts[6]), Integer.parseInt(parts[7]), null);
+	}
+
+	public int getNumWindows() {
+		return numWindows;
+	}
+
+	public boolean isMulti() {
+		return multi;
+	}
+
+	public int getCustomersCheckedOut() {
+		return customersCheckedOut;
+	}
+
+	public double getAverageWaitTime() {
+		return averageWaitTime;
+	}
+
+	/**
+	 * Gets the 90th percentile of the wait
+	 * @return the 90th percentile of the wait in seconds
+	 */
+	public long getWaitP90() {
+		return waitP90;
+	}
+
+	/**
+	 * Gets the 99th percentile of the wait
+	 * @return the 99th percentile of the wait in seconds
+	 */
+	public long getWaitP99() {
+		return waitP99;
+	}
+
+	public double getAverageCheckOutTime() {
+		return averageCheckOutTime;
+	}
+
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
+
+	public boolean isFailed() {
+		return error != null;
+	}
+
+	/**
+	 * Gets why the simulation could not be run
+	 * @return the error, or null if the simulation ran
+	 */
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof SimulationResult)) {
+			return false;
+		}
+		SimulationResult result = (SimulationResult) other;
+		return numWindows == result.numWindows && multi == result.multi
+				&& customersCheckedOut == result.customersCheckedOut
+				&& Double.compare(averageWaitTime, result.averageWaitTime) == 0
+				&& waitP90 == result.waitP90 && waitP99 == result.waitP99
+				&& Double.compare(averageCheckOutTime, result.averageCheckOutTime) == 0
+				&& maxLineLength == result.maxLineLength && Objects.equals(error, result.error);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(numWindows, multi, customersCheckedOut, averageWaitTime, waitP90, waitP99,
+				averageCheckOutTime, maxLineLength, error);
+	}
+}
@@ -0,0 +1,329 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+/**
+ * Finds the fewest counters that keep a percentile of the wait (the 95th by
+ * default) under a target for each line set up. The customers are made up with
+ * the hourly arrival rates and items of a simulation data file, and each counter
+ * count is judged from replications run in parallel on a fork-join pool.
+ *
+ * A counter count gets replications in batches until the 95% confidence interval
+ * of the percentile is entirely above or below the target, so clear cases stop
+ * early and only the close ones use up to the maximum number of replications.
+ * The search starts from the fewest counters the queueing estimate says can keep
+ * up, steps up or down in growing steps until the answer is bracketed and then
+ * halves the bracket. It assumes more counters never make the wait worse.
+ * Replication i of every counter count uses the same random numbers, so the
+ * counts are compared on the same customers. Customers still in line when a
+ * replication ends count with how long they have waited so far.
+ *
+ * Usage: java StaffingOptimizer file [options]
+ *   --target S          the wait in seconds to stay under (default 120)
+ *   --percentile P      the percentile of the wait to judge (default 95)
+ *   --layout L          single, multiple or both (default both)
+ *   --policy P          dispatch policy for a line per counter (default shortest)
+ *   --seed S            seed for the random numbers (default 1)
+ *   --min-reps N        replications before judging a counter count (default 10)
+ *   --max-reps N        replications before giving up on a clear answer (default 200)
+ *   --max-windows N     the most counters to try (default 1000)
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class StaffingOptimizer {
+	private String simName;
+	private int mins;
+	private double[] hourlyRates;
+	private ItemHistogram items;
+	private int startWindows = 1;
+	private double target = 120;
+	private double percentile = 95;
+	private boolean[] layouts = {false, true};
+	private String policy = "shortest";
+	private long seed = 1;
+	private int minReps = 10;
+	private int maxReps = 200;
+	private int maxWindows = 1000;
+
+	/**
+	 * The judgement of one counter count and line set up
+	 */
+	public static class Evaluation {
+		private final int numWindows;
+		private final boolean multi;
+		private final RunningStats waitPercentile;
+		private final boolean meetsTarget;
+		private final boolean settled;
+
+		public Evaluation(int numWindows, boolean multi, RunningStats waitPercentile, boolean meetsTarget,
+				boolean settled) {
+			this.numWindows = numWindows;
+			this.multi = multi;
+			this.waitPercentile = waitPercentile;
+			this.meetsTarget = meetsTarget;
+			this.settled = settled;
+		}
+
+		public int getNumWindows() {
+			return numWindows;
+		}
+
+		public boolean isMulti() {
+			return multi;
+		}
+
+		/**
+		 * Gets the percentile of the wait of each replication
+		 * @return the stats of the percentile across the replications
+		 */
+		public RunningStats getWaitPercentile() {
+			return waitPercentile;
+		}
+
+		public boolean meetsTarget() {
+			return meetsTarget;
+		}
+
+		/**
+		 * Returns whether the confidence interval ended up entirely on one side of the
+		 * target. If not, the verdict is only from the mean of the maximum replications.
+		 * @return true if the verdict is statistically settled
+		 */
+		public boolean isSettled() {
+			return settled;
+		}
+	}
+
+	/**
+	 * Sets up the optimizer to make up customers like the ones in a trace
+	 * @param trace the customers to imitate
+	 */
+	public void fitTo(ArrivalTrace trace) {
+		simName = trace.getName();
+		mins = trace.getMinutes();
+		hourlyRates = ArrivalGenerator.hourlyRates(trace);
+		items = ItemHistogram.fromTrace(trace);
+		QueueingEstimator estimator = QueueingEstimator.fit(trace.replay());
+		//the fewest counters that can keep up with the average arrival rate
+		startWindows = Math.max(1, (int) Math.floor(estimator.getArrivalRate() * estimator.getMeanService()) + 1);
+	}
+
+	/**
+	 * Runs one replication and measures the percentile of its wait
+	 * @param numWindows the number of counters
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param random the random numbers for the replication
+	 * @return the percentile of the wait in seconds
+	 */
+	public long replicate(int numWindows, boolean multi, SplittableRandom random) {
+		Store sim = new Store(numWindows, multi, new SimulationContext(), DispatchPolicy.forName(policy, random.nextLong()));
+		ArrivalGenerator customers = new ArrivalGenerator(simName, mins, numWindows, hourlyRates, items, random);
+		new EventSimulator(sim).run(customers, mins*60);
+		//customers still in line at the end count with their wait so far, or an
+		//overloaded store would only be judged by the few customers it got to
+		return sim.getWaitHistogramWithUnserved().getPercentile(percentile);
+	}
+
+	/**
+	 * Runs replications of a counter count in batches on the pool until its percentile
+	 * is clearly above or below the target, or the maximum replications have run
+	 * @param numWindows the number of counters
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param pool the pool to run the replications on
+	 * @return the judgement of the counter count
+	 */
+	public Evaluation evaluate(int numWindows, boolean multi, ForkJoinPool pool) {
+		SplittableRandom root = new SplittableRandom(seed);
+		RunningStats stats = new RunningStats();
+		int batch = minReps;
+		while(true) {
+			List<ForkJoinTask<Long>> runs = new ArrayList<ForkJoinTask<Long>>();
+			for(int i = 0; i < batch; i++) {
+				SplittableRandom random = root.split();
+				runs.add(pool.submit(() -> replicate(numWindows, multi, random)));
+			}
+			for(ForkJoinTask<Long> run : runs) {
+				stats.add(run.join());
+			}
+			double low = stats.getMean() - stats.getHalfWidth();
+			double high = stats.getMean() + stats.getHalfWidth();
+			if(high < target) {
+				return new Evaluation(numWindows, multi, stats, true, true);
+			}
+			if(low > target) {
+				return new Evaluation(numWindows, multi, stats, false, true);
+			}
+			if(stats.getCount() >= maxReps) {
+				return new Evaluation(numWindows, multi, stats, stats.getMean() < target, false);
+			}
+			//double the replications each time, up to the maximum
+			batch = (int) Math.min(stats.getCount(), maxReps - stats.getCount());
+		}
+	}
+
+	/**
+	 * Finds the fewest counters that meet the target for a line set up
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param pool the pool to run the replications on
+	 * @param evaluations every counter count that was judged, in order of counters
+	 * @return the fewest counters that meet the target or -1 if even the most counters do not
+	 */
+	public int optimize(boolean multi, ForkJoinPool pool, TreeMap<Integer, Evaluation> evaluations) {
+		int start = Math.min(startWindows, maxWindows);
+		int fails = 0;
+		int meets = -1;
+		if(judge(start, multi, pool, evaluations)) {
+			meets = start;
+			//step down until a count fails
+			int step = 1;
+			while(fails == 0) {
+				int n = meets - step;
+				if(n < 1) {
+					if(meets == 1 || judge(1, multi, pool, evaluations)) {
+						return 1;
+					}
+					fails = 1;
+				}
+				else if(judge(n, multi, pool, evaluations)) {
+					meets = n;
+					step *= 2;
+				}
+				else {
+					fails = n;
+				}
+			}
+		}
+		else {
+			fails = start;
+			//step up until a count meets the target
+			int step = 1;
+			while(meets < 0) {
+				int n = Math.min(fails + step, maxWindows);
+				if(judge(n, multi, pool, evaluations)) {
+					meets = n;
+				}
+				else if(n == maxWindows) {
+					return -1;
+				}
+				else {
+					fails = n;
+					step *= 2;
+				}
+			}
+		}
+		//the answer is above fails and at most meets
+		while(meets - fails > 1) {
+			int n = (fails + meets) / 2;
+			if(judge(n, multi, pool, evaluations)) {
+				meets = n;
+			}
+			else {
+				fails = n;
+			}
+		}
+		return meets;
+	}
+
+	/**
+	 * Judges a counter count, reusing the judgement if it was already made
+	 */
+	private boolean judge(int numWindows, boolean multi, ForkJoinPool pool, TreeMap<Integer, Evaluation> evaluations) {
+		Evaluation evaluation = evaluations.get(numWindows);
+		if(evaluation == null) {
+			evaluation = evaluate(numWindows, multi, pool);
+			evaluations.put(numWindows, evaluation);
+		}
+		return evaluation.meetsTarget();
+	}
+
+	/**
+	 * Reads the settings from the command line arguments after the file name
+	 * @param args the command line arguments
+	 */
+	public void parseArgs(String[] args) {
+		for(int i = 1; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			switch(args[i]) {
+				case "--target": target = Double.parseDouble(value); break;
+				case "--percentile": percentile = Double.parseDouble(value); break;
+				case "--layout":
+					layouts = value.equals("single") ? new boolean[] {false}
+							: value.equals("multiple") ? new boolean[] {true} : new boolean[] {false, true};
+					break;
+				case "--policy": DispatchPolicy.forName(value, seed); policy = value; break;
+				case "--seed": seed = Long.parseLong(value); break;
+				case "--min-reps": minReps = Integer.parseInt(value); break;
+				case "--max-reps": maxReps = Integer.parseInt(value); break;
+				case "--max-windows": maxWindows = Integer.parseInt(value); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if(minReps < 2 || maxReps < minReps) {
+			throw new IllegalArgumentException("Need at least 2 replications and no more than --max-reps");
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			System.out.println("Usage: java StaffingOptimizer file [--target S] [--percentile P] [--layout L]"
+					+ " [--policy P] [--seed S] [--min-reps N] [--max-reps N] [--max-windows N]");
+			return;
+		}
+		StaffingOptimizer optimizer = new StaffingOptimizer();
+		optimizer.parseArgs(args);
+		try {
+			optimizer.fitTo(ArrivalTrace.load(args[0]));
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+			return;
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+			return;
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+			return;
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+			return;
+		}
+
+		System.out.printf("Staffing for the simulation: %s (p%s wait under %.0f seconds, seed %d)%n",
+				optimizer.simName, new DecimalFormat("0.###").format(optimizer.percentile),
+				optimizer.target, optimizer.seed);
+		System.out.println();
+		ForkJoinPool pool = new ForkJoinPool();
+		for(boolean multi : optimizer.layouts) {
+			TreeMap<Integer, Evaluation> evaluations = new TreeMap<Integer, Evaluation>();
+			int best = optimizer.optimize(multi, pool, evaluations);
+			System.out.println("Simulation type: " + (multi ? "Multiple lines" : "Single line"));
+			System.out.println("--------------------------------------------------------");
+			for(Evaluation evaluation : evaluations.values()) {
+				RunningStats stats = evaluation.getWaitPercentile();
+				System.out.printf("\t%4d counters: %8.2f +/- %-8.2f over %3d replications, %s%s%n",
+						evaluation.getNumWindows(), stats.getMean(), stats.getHalfWidth(), stats.getCount(),
+						evaluation.meetsTarget() ? "meets the target" : "misses the target",
+						evaluation.isSettled() ? "" : " (not settled)");
+			}
+			if(best < 0) {
+				System.out.println("\tNo counter count up to " + optimizer.maxWindows + " meets the target");
+			}
+			else {
+				System.out.println("\tFewest counters: " + best);
+			}
+			System.out.println();
+		}
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,206 @@
+import java.util.Arrays;
+/**
+ * Runs one simulation in batches of simulated time and stops it as soon as its
+ * steady-state average wait is known well enough. The average wait of the
+ * customers who left a line during each batch is one batch mean. The batches at
+ * the start, while the store is filling up from empty, are cut off with MSER:
+ * the cut is put where the batch means after it have the smallest squared
+ * standard error, looking no further than half way through. The run stops once
+ * the 95% confidence interval of the batch means after the cut is narrower than
+ * the given fraction of their mean, or at the end time if it never is. A batch in
+ * which no customer left a line has no mean and is skipped, but the warm up that
+ * is cut off still runs to the start of the first batch that is kept.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class SteadyStateMonitor {
+	private final int batchLength;
+	private final double relativePrecision;
+	private final int minBatches;
+	private double[] batchMeans = new double[64];
+	private int[] batchStarts = new int[64];
+	private int numBatches;
+	private int truncation;
+	private boolean converged;
+	private int startTime;
+	private int stopTime;
+	private int endTime;
+	private Store sim;
+
+	/**
+	 * Creates a monitor
+	 * @param batchLength the number of simulated seconds in a batch
+	 * @param relativePrecision the half-width of the confidence interval as a fraction of
+	 * the mean that is good enough, or 0 to always run to the end
+	 * @param minBatches the fewest batches after the cut before the run can stop
+	 */
+	public SteadyStateMonitor(int batchLength, double relativePrecision, int minBatches) {
+		if(batchLength < 1 || minBatches < 2) {
+			throw new IllegalArgumentException("Batches need a length and at least two of them are needed");
+		}
+		this.batchLength = batchLength;
+		this.relativePrecision = relativePrecision;
+		this.minBatches = minBatches;
+	}
+
+	/**
+	 * Simulates the store with the customers from the source until the estimate is good
+	 * enough or the end time is reached
+	 * @param sim the store to simulate
+	 * @param source the customers
+	 * @param endTime the latest time the simulation can run to
+	 * @return this monitor, with the results of the run
+	 */
+	public SteadyStateMonitor run(Store sim, ArrivalSource source, int endTime) {
+		this.sim = sim;
+		this.endTime = endTime;
+		SimulationContext context = sim.getContext();
+		EventSimulator engine = new EventSimulator(sim);
+		startTime = context.getClock().getTime();
+		int batchStart = startTime;
+		int batchEnd = Math.min(startTime + batchLength, endTime);
+		long waitAtStart = context.getTotalWaitTime();
+		long servedAtStart = context.getCustomersServed();
+		boolean more = source.next();
+		while(true) {
+			//give the store every customer arriving before the end of the batch
+			while(more && source.getTime() < batchEnd) {
+				engine.offer(source.getTime(), source.getNumItems());
+				more = source.next();
+			}
+			engine.advanceTo(batchEnd);
+			long served = context.getCustomersServed() - servedAtStart;
+			if(served > 0) {
+				addBatch(batchStart, (double) (context.getTotalWaitTime() - waitAtStart) / served);
+			}
+			batchStart = batchEnd;
+			waitAtStart = context.getTotalWaitTime();
+			servedAtStart = context.getCustomersServed();
+			if(isGoodEnough() || batchEnd >= endTime) {
+				break;
+			}
+			batchEnd = Math.min(batchEnd + batchLength, endTime);
+		}
+		stopTime = batchEnd;
+		return this;
+	}
+
+	/**
+	 * Adds the mean wait of a batch
+	 * @param start the simulated time the batch started at
+	 * @param mean the mean wait of the customers who left a line during the batch
+	 */
+	public void addBatch(int start, double mean) {
+		if(numBatches == batchMeans.length) {
+			batchMeans = Arrays.copyOf(batchMeans, numBatches * 2);
+			batchStarts = Arrays.copyOf(batchStarts, numBatches * 2);
+		}
+		batchStarts[numBatches] = start;
+		batchMeans[numBatches++] = mean;
+	}
+
+	/**
+	 * Finds the MSER cut: the number of batches at the start to leave out so the
+	 * rest have the smallest squared standard error, among cuts in the first half
+	 * @return the number of batches to leave out
+	 */
+	public int findTruncation() {
+		if(numBatches < 2) {
+			return 0;
+		}
+		//sums of the batches from each cut to the end, built from the back
+		double sum = 0;
+		double sumSquares = 0;
+		double best = Double.POSITIVE_INFINITY;
+		int bestCut = 0;
+		for(int d = numBatches - 1; d >= 0; d--) {
+			sum += batchMeans[d];
+			sumSquares += batchMeans[d] * batchMeans[d];
+			int kept = numBatches - d;
+			if(d <= numBatches / 2 && kept >= 2) {
+				double mean = sum / kept;
+				double squaredError = Math.max(0, sumSquares - kept * mean * mean) / ((double) kept * kept);
+				if(squaredError <= best) {
+					best = squaredError;
+					bestCut = d;
+				}
+			}
+		}
+		return bestCut;
+	}
+
+	/**
+	 * Gets the stats of the batch means after the MSER cut
+	 * @return the stats of the batches that are kept
+	 */
+	public RunningStats getSteadyState() {
+		RunningStats stats = new RunningStats();
+		for(int i = truncation; i < numBatches; i++) {
+			stats.add(batchMeans[i]);
+		}
+		return stats;
+	}
+
+	/**
+	 * Moves the cut and checks whether the confidence interval is narrow enough yet
+	 * @return true if the run can stop
+	 */
+	private boolean isGoodEnough() {
+		truncation = findTruncation();
+		if(relativePrecision <= 0 || numBatches - truncation < minBatches) {
+			return false;
+		}
+		RunningStats stats = getSteadyState();
+		double mean = stats.getMean();
+		converged = mean == 0 ? stats.getVariance() == 0 : stats.getHalfWidth() <= relativePrecision * Math.abs(mean);
+		return converged;
+	}
+
+	/**
+	 * Gets the store that was simulated
+	 * @return the store, stopped at the stop time
+	 */
+	public Store getStore() {
+		return sim;
+	}
+
+	public int getNumBatches() {
+		return numBatches;
+	}
+
+	/**
+	 * Gets the length of the warm up that was cut off, up to the start of the first
+	 * batch that is kept
+	 * @return the number of simulated seconds left out at the start
+	 */
+	public int getTruncatedTime() {
+		return truncation < numBatches ? batchStarts[truncation] - startTime : 0;
+	}
+
+	/**
+	 * Gets the time the run stopped
+	 * @return the simulated time the run stopped at
+	 */
+	public int getStopTime() {
+		return stopTime;
+	}
+
+	/**
+	 * Returns whether the estimate got good enough
+	 * @return true if the confidence interval got narrow enough, even on the last batch
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	/**
+	 * Returns whether the run stopped before the end time because the estimate was
+	 * good enough
+	 * @return true if the run stopped early
+	 */
+	public boolean isStoppedEarly() {
+		return converged && stopTime < endTime;
+	}
+}
@@ -1,4 +1,12 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
  * This represents the simulation of customers entering the checkout
@@ -8,6 +16,11 @@ import java.util.ArrayList;
  * customers moving through the line and check out counters and to 
  * print stats about the store at the end.
  * 
+ * Counters are only updated when something can change for them. A counter with a
+ * customer is woken up when that customer's finish time comes up, and an empty
+ * counter is only updated when its line goes from empty to having customers or
+ * the second after it finishes with a customer.
+ * 
  * author Jacob Borchert
  * version 2/1/2023
  */
@@ -16,8 +29,16 @@ public class Store {
     private ArrayList<Counter> counters;
     private Line line;
     private ArrayList<Line> lines;
+    private DispatchPolicy policy;
     private boolean multi;
+    private SimulationContext context;
     private Clock c;
+    private EventQueue wakeups;
+    private BitSet idleCounters;
+    private boolean[] lineNeedsService;
+    private int[] linesToServe;
+    private int numLinesToServe;
+    private QueueSampler sampler;
 
 
     /**
@@ -29,8 +50,31 @@ public class Store {
      * @param c the clock for the simulation
      */
     public Store(int numCounters, boolean multi, Clock c) {
+        this(numCounters, multi, new SimulationContext(c));
+    }
+
+    /**
+     * Creates the store according to the simulation settings inside the given simulation.
+     * @param numCounters the number of check out counters that are open during the simulation
+     * @param multi true if there is a line per counter, false for a single line
+     * @param context the simulation the store belongs to
+     */
+    public Store(int numCounters, boolean multi, SimulationContext context) {
+        this(numCounters, multi, context, new ShortestLinePolicy());
+    }
+
+    /**
+     * Creates the store inside the given simulation with a policy that decides which line
+     * each customer joins when there is a line per counter.
+     * @param numCounters the number of check out counters that are open during the simulation
+     * @param multi true if there is a line per counter, false for a single line
+     * @param context the simulation the store belongs to
+     * @param policy the policy for choosing a line, which is not used for a single line
+     */
+    public Store(int numCounters, boolean multi, SimulationContext context, DispatchPolicy policy) {
         this.multi = multi;
-        this.c = c;
+        this.context = context;
+        this.c = context.getClock();
         this.counters = new ArrayList<Counter>();
         this.lines = new ArrayList<Line>();
         
@@ -39,73 +83,349 @@ public class Store {
         if (multi) {
             this.lines = new ArrayList<Line>();
             for (int i = 0; i < numCounters; i++) {
-                Line line = new Line(c, i);
+                Line line = new Line(context, i);
                 this.lines.add(line);
-                Counter counter = new Counter(i, line, c);
+                Counter counter = new Counter(i, line, context);
                 this.counters.add(counter);
             }
+            this.policy = policy;
+            policy.attach(lines);
         } else {
-            Line line = new Line(c, numCounters);
+            Line line = new Line(context, numCounters);
             this.lines = new ArrayList<Line>();
             this.lines.add(line);
             this.line = line; // assign the Line object to this.line variable
             for (int i = 0; i < numCounters; i++) {
-                Counter counter = new Counter(i, line, c);
+                Counter counter = new Counter(i, line, context);
                 this.counters.add(counter);
             }
         }
+        this.wakeups = new EventQueue();
+        this.idleCounters = new BitSet(numCounters);
+        this.idleCounters.set(0, numCounters);
+        this.lineNeedsService = new boolean[lines.size()];
+        this.linesToServe = new int[lines.size()];
+        this.numLinesToServe = 0;
+    }
+
+    /**
+     * Marks a line as having customers that empty counters may need to take
+     * @param l the position of the line in the list of lines
+     */
+    private void needsService(int l) {
+        if (!lineNeedsService[l]) {
+            lineNeedsService[l] = true;
+            linesToServe[numLinesToServe++] = l;
+        }
     }
 
     /**
-     * Processes a customer arriving at the checkout time. A customer will be placed in the
-     * shortest line (also accounting for whether there is a customer at the counter) with
-     * ties broken by the smallest counter number
+     * Processes a customer arriving at the checkout time. When there is a line per counter,
+     * the store's dispatch policy picks the line. By default that is the shortest line with
+     * ties broken by the smallest counter number.
      * @param customer the customer that is ready to get in line
      */
     public void customerArrival(Customer customer) {
+        addCustomer(customer.getArrivalTime(), customer.getEnterTime(), customer.getNumItems(),
+                customer.getPositionInLine());
+    }
+
+    /**
+     * Processes a customer with the given number of items arriving now, the same as
+     * customerArrival(new Customer(context, numItems)) but without creating the Customer.
+     * The customer is numbered by the simulation and is only kept as numbers in its line,
+     * so the path from arrival to check out does not create any objects.
+     * @param numItems the number of items the customer has
+     */
+    public void customerArrival(int numItems) {
+        int id = context.nextCustomerId();
+        // a new customer's arrival time is never set, so it is always 0
+        addCustomer(0, c.getTime(), numItems, id);
+    }
+
+    /**
+     * Puts a customer in the line chosen for them
+     * @param arrivalTime the time the customer arrived
+     * @param enterTime the time the customer entered the line
+     * @param numItems the number of items the customer has
+     * @param id the customer number
+     */
+    private void addCustomer(int arrivalTime, int enterTime, int numItems, int id) {
+        if (sampler != null) {
+            sampler.sampleUntil(c.getTime() - 1, this);
+        }
+        context.recordArrival();
         if (multi) {
-            Line shortestLine = lines.get(0);
-            for (int i = 1; i < lines.size(); i++) {
-                if (lines.get(i).getLineLength() < shortestLine.getLineLength()) {
-                    shortestLine = lines.get(i);
-                }
-            }
-            shortestLine.addToLine(customer);
+            int chosen = policy.chooseLine(numItems);
+            lines.get(chosen).addToLine(arrivalTime, enterTime, numItems, id);
+            needsService(chosen);
         } else {
-            line.addToLine(customer);
+            line.addToLine(arrivalTime, enterTime, numItems, id);
+            needsService(0);
         }
     }
 
     /**
-     * Processes one second of the simulation for the store by updating each
-     * counter
+     * Processes one second of the simulation for the store. The counters whose customer
+     * finishes this second are updated first, then the empty counters take the next
+     * customers from any line that changed, in counter order. Counters that have nothing
+     * to do this second are not visited at all.
      */
     public void updateStore() {
-        for (Counter counter : counters) {
-            if (!counter.hasCustomer()) {
-                if (multi) {
-                    for (Line l : lines) {
-                        if (l.getLineLength() > 0 ) {
-                            counter.updateCounter();
-                            break;
-                        }
-                    }
-                } else {
-                    if (line != null && line.getLineLength() > 0) {
-                        counter.updateCounter();
-                    }
+        int now = c.getTime();
+        if (sampler != null) {
+            sampler.sampleUntil(now - 1, this);
+        }
+        while (!wakeups.isEmpty() && wakeups.peekTime() <= now) {
+            int i = wakeups.poll();
+            Counter counter = counters.get(i);
+            if (counter.hasCustomer()) {
+                counter.updateCounter();
+                if (!counter.hasCustomer()) {
+                    // a counter can take its next customer the second after it finishes
+                    wakeups.add(now + 1, i);
                 }
             } else {
+                idleCounters.set(i);
+                needsService(multi ? i : 0);
+            }
+        }
+        for (int k = 0; k < numLinesToServe; k++) {
+            int l = linesToServe[k];
+            lineNeedsService[l] = false;
+            Line waiting = lines.get(l);
+            int last = multi ? l + 1 : counters.size();
+            int i = idleCounters.nextSetBit(multi ? l : 0);
+            while (i >= 0 && i < last && waiting.hasNextCustomer()) {
+                Counter counter = counters.get(i);
                 counter.updateCounter();
+                idleCounters.clear(i);
+                int finishTime = counter.getCustomerFinishTime();
+                // a customer whose finish time has already passed never finishes
+                if (finishTime > now) {
+                    wakeups.add(finishTime, i);
+                }
+                i = idleCounters.nextSetBit(i + 1);
             }
         }
+        numLinesToServe = 0;
+    }
+
+    /**
+     * Sets the sampler that records the line lengths and busy counters as the simulation
+     * runs. The store is sampled before it changes each second, so the samples for the
+     * seconds the clock skipped over are still taken. Without a sampler nothing is recorded.
+     * @param sampler the sampler to use or null to stop sampling
+     */
+    public void setSampler(QueueSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * Records any samples still owed up to the given time, such as the end of the
+     * simulation when no more customers arrive.
+     * @param time the last second to sample
+     */
+    public void sampleUntil(int time) {
+        if (sampler != null) {
+            sampler.sampleUntil(time, this);
+        }
+    }
+
+    public int getNumLines() {
+        return lines.size();
+    }
+
+    public int getNumCounters() {
+        return counters.size();
+    }
+
+    /**
+     * Gets the number of customers waiting in one of the lines
+     * @param l the position of the line in the list of lines
+     * @return the number of customers waiting in the line
+     */
+    public int getLineLength(int l) {
+        return lines.get(l).getLineLength();
+    }
+
+    /**
+     * Returns whether a counter is checking out a customer
+     * @param i the position of the counter
+     * @return true if the counter has a customer, false if it is idle
+     */
+    public boolean isCounterBusy(int i) {
+        return counters.get(i).hasCustomer();
+    }
+
+    /**
+     * Returns whether there is a line per counter
+     * @return true for a line per counter, false for a single line
+     */
+    public boolean isMulti() {
+        return multi;
+    }
+
+    /**
+     * Records the stats of one of the lines as they are now
+     * @param l the position of the line in the list of lines
+     * @return the stats of the line
+     */
+    public LineStats getLineStats(int l) {
+        return new LineStats(l, lines.get(l));
+    }
+
+    /**
+     * Records the stats of one of the counters as they are now
+     * @param i the position of the counter
+     * @return the stats of the counter
+     */
+    public CounterStats getCounterStats(int i) {
+        return new CounterStats(i, counters.get(i), c.getTime());
+    }
+
+    /**
+     * Records the stats of the whole store as they are now, the same stats printStats
+     * prints but as numbers
+     * @return the stats of the store
+     */
+    public StoreStats getStats() {
+        return new StoreStats(this);
+    }
+
+    /**
+     * Sets the observer that is told about every customer as they finish checking out
+     * @param observer the observer or null to stop telling anyone
+     */
+    public void setCustomerObserver(CustomerObserver observer) {
+        context.setCustomerObserver(observer);
+    }
+
+    /**
+     * Writes everything about the store for a checkpoint: the clock and overall stats,
+     * the customers in every line, the customer at every counter, the counters' upcoming
+     * events and the dispatch policy. The store should be between seconds, as it is after
+     * EventSimulator.advanceTo.
+     * @param out where to write the store
+     * @throws IOException if it cannot be written
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(multi);
+        out.writeInt(counters.size());
+        out.writeUTF(policy == null ? "" : policy.getName());
+        context.writeState(out);
+        for (Line line : lines) {
+            line.writeState(out);
+        }
+        for (Counter counter : counters) {
+            counter.writeState(out);
+        }
+        wakeups.writeState(out);
+        long[] idle = idleCounters.toLongArray();
+        out.writeInt(idle.length);
+        for (long word : idle) {
+            out.writeLong(word);
+        }
+        out.writeInt(numLinesToServe);
+        for (int k = 0; k < numLinesToServe; k++) {
+            out.writeInt(linesToServe[k]);
+        }
+        // the policy is written with its length so a different policy can skip it
+        ByteArrayOutputStream policyState = new ByteArrayOutputStream();
+        if (policy != null) {
+            policy.writeState(new DataOutputStream(policyState));
+        }
+        out.writeInt(policyState.size());
+        out.write(policyState.toByteArray());
+    }
+
+    /**
+     * Creates a store from one written by writeState, in a new simulation whose clock
+     * starts at the time the store was written. Counters can be added to try out more
+     * staff from that point on. The new counters start out idle, and with a line per
+     * counter each one gets its own empty line.
+     * @param in where to read the store from
+     * @param extraCounters the number of counters to add
+     * @param policy the dispatch policy to switch to, or null to keep the written one
+     * @return the store
+     * @throws IOException if it cannot be read
+     */
+    public static Store restore(DataInput in, int extraCounters, DispatchPolicy policy) throws IOException {
+        boolean multi = in.readBoolean();
+        int saved = in.readInt();
+        String policyName = in.readUTF();
+        if (saved < 1 || extraCounters < 0) {
+            throw new IOException("Bad counter count " + saved);
+        }
+        SimulationContext context = new SimulationContext();
+        context.readState(in);
+        if (policy == null) {
+            policy = DispatchPolicy.forName(policyName.isEmpty() ? "shortest" : policyName, 0);
+        }
+        Store sim = new Store(saved + extraCounters, multi, context, policy);
+        for (int l = 0; l < (multi ? saved : 1); l++) {
+            sim.lines.get(l).readState(in);
+        }
+        for (int i = 0; i < saved; i++) {
+            sim.counters.get(i).readState(in);
+        }
+        sim.wakeups.readState(in);
+        long[] idle = new long[in.readInt()];
+        for (int w = 0; w < idle.length; w++) {
+            idle[w] = in.readLong();
+        }
+        sim.idleCounters = BitSet.valueOf(idle);
+        sim.idleCounters.set(saved, saved + extraCounters);
+        int toServe = in.readInt();
+        for (int k = 0; k < toServe; k++) {
+            sim.needsService(in.readInt());
+        }
+        if (extraCounters > 0) {
+            // the new counters can take customers who are already waiting
+            for (int l = 0; l < sim.lines.size(); l++) {
+                sim.needsService(l);
+            }
+        }
+        byte[] policyState = new byte[in.readInt()];
+        in.readFully(policyState);
+        if (multi && policy.getName().equals(policyName)) {
+            policy.readState(new DataInputStream(new ByteArrayInputStream(policyState)));
+        }
+        return sim;
+    }
+
+    /**
+     * Gets the policy that picks a line for each customer
+     * @return the dispatch policy or null for a single line
+     */
+    public DispatchPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Gets the simulation the store belongs to
+     * @return the simulation the store belongs to
+     */
+    public SimulationContext getContext() {
+        return context;
+    }
+
+    /**
+     * Gets the next time a counter needs to be updated, either because its customer
+     * finishes checking out or because it is free to take the next customer in line.
+     * Nothing changes in the store before then unless a customer arrives.
+     * @return the next time a counter needs to be updated or -1 if no counter does
+     */
+    public int getNextEventTime() {
+        return wakeups.isEmpty() ? -1 : wakeups.peekTime();
     }
 	/**
 	 * Cleans up the end of the simulation and prints the stats for the store. This includes: the types 
 	 * of simulation (single line vs multiple lines), the stats for each individual counter and line, and 
 	 * then the overall stats. The overall stats include the number of customers checked out across all 
 	 * counters, the average wait time for all customers that made it to the counter across all the lines, 
-	 * and the average time at the check out counter for the customers who finished checking out.
+	 * and the average time at the check out counter for the customers who finished checking out, along
+	 * with the 50th, 90th, 99th and 99.9th percentiles of the wait and check out times.
 	 */
     public void printStats() {
     	System.out.println("Simulation type: " + (multi ? "Multiple lines" : "Single line"));
@@ -121,6 +441,7 @@ public class Store {
     			System.out.println("\tTotal time spent waiting: " + line.getTotalWait());
     			System.out.println("\tAverage wait time per customer: " + line.getAverageWaitTime());
     			System.out.println("\tMax line length: " + line.getMaxLength());
+    			System.out.println("\tWait time percentiles (from entering the line): " + line.getWaitHistogram().percentiles());
     			System.out.println();
     		}
     	} else {
@@ -131,6 +452,7 @@ public class Store {
     		System.out.println("\tTotal time spent waiting: " + line.getTotalWait());
     		System.out.println("\tAverage wait time per customer: " + line.getAverageWaitTime());
     		System.out.println("\tMax line length: " + line.getMaxLength());
+    		System.out.println("\tWait time percentiles (from entering the line): " + line.getWaitHistogram().percentiles());
     		System.out.println();
     	}
     	
@@ -139,6 +461,42 @@ public class Store {
     	//System.out.println("\tAverage wait time per customer: " + getAverageWaitTime());
     	System.out.println("\tAverage check out time per customer: " + getAverageCheckOutTime());
     	System.out.println("\tMax line length: " + getMaxLineLength());
+    	System.out.println("\tWait time percentiles (from entering the line): " + getWaitHistogram().percentiles());
+    	System.out.println("\tCheck out time percentiles: " + getCheckOutHistogram().percentiles());
+    }
+    
+    /**
+     * Returns the wait times of every line merged into one histogram
+     */
+    public LatencyHistogram getWaitHistogram() {
+        LatencyHistogram waits = new LatencyHistogram();
+        for (Line line : lines) {
+            waits.merge(line.getWaitHistogram());
+        }
+        return waits;
+    }
+    
+    /**
+     * Returns the wait times of every line merged into one histogram, also counting each
+     * customer still in line with how long they have waited so far
+     */
+    public LatencyHistogram getWaitHistogramWithUnserved() {
+        LatencyHistogram waits = getWaitHistogram();
+        for (Line line : lines) {
+            line.recordWaitsSoFar(waits);
+        }
+        return waits;
+    }
+    
+    /**
+     * Returns the check out times of every counter merged into one histogram
+     */
+    public LatencyHistogram getCheckOutHistogram() {
+        LatencyHistogram checkOuts = new LatencyHistogram();
+        for (Counter counter : counters) {
+            checkOuts.merge(counter.getCheckOutHistogram());
+        }
+        return checkOuts;
     }
     
     public int getTotalCustomersCheckedOut() {
@@ -157,7 +515,7 @@ public class Store {
         int numCustomers = 0;
         double totalWaitTime = 0.0;
         for (Line line : lines) {
-            numCustomers += counters.get(0).getCustomersFinished();
+            numCustomers += line.getCustomersServed();
             totalWaitTime += line.getTotalWait();
         }
         return (numCustomers == 0) ? 0.0 : totalWaitTime / numCustomers;
@@ -177,6 +535,18 @@ public class Store {
         return (numCustomers == 0) ? 0.0 : totalTimeCheckingOut / numCustomers;
     }
 
+    /**
+     * Returns the number of seconds the counters have been idle so far, added across all
+     * the counters
+     */
+    public long getTotalIdleTime() {
+        long total = 0;
+        for (Counter counter : counters) {
+            total += counter.getIdleTime();
+        }
+        return total;
+    }
+
     /**
      * Returns the maximum line length across all lines
      * WHY WONT THIS WORK :(
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+/**
+ * Holds the stats of a whole store at a point in the simulation: the overall
+ * stats from its simulation along with the stats of every line and counter, as
+ * numbers instead of text, so the results of many runs can be written out and
+ * analyzed without reading console output. The waits are measured from the time
+ * a customer enters the line, the same as the SimulationContext averages and the
+ * percentiles. They do not match the legacy averages printStats prints, which
+ * measure the wait from time 0 and check out times from the clock.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class StoreStats {
+	private final boolean multi;
+	private final int numCounters;
+	private final int time;
+	private final long arrived;
+	private final long served;
+	private final long checkedOut;
+	private final int waiting;
+	private final double averageWaitTime;
+	private final int maxWaitTime;
+	private final double averageCheckOutTime;
+	private final long idleTime;
+	private final int maxLineLength;
+	private final long waitP50;
+	private final long waitP90;
+	private final long waitP99;
+	private final long waitP999;
+	private final long checkOutP50;
+	private final long checkOutP90;
+	private final long checkOutP99;
+	private final long checkOutP999;
+	private final List<LineStats> lines;
+	private final List<CounterStats> counters;
+
+	/**
+	 * Records the stats of a store as they are now
+	 * @param sim the store
+	 */
+	public StoreStats(Store sim) {
+		SimulationContext context = sim.getContext();
+		List<LineStats> lines = new ArrayList<LineStats>();
+		int waiting = 0;
+		for(int l = 0; l < sim.getNumLines(); l++) {
+			LineStats line = sim.getLineStats(l);
+			lines.add(line);
+			waiting += line.getWaiting();
+		}
+		List<CounterStats> counters = new ArrayList<CounterStats>();
+		for(int i = 0; i < sim.getNumCounters(); i++) {
+			counters.add(sim.getCounterStats(i));
+		}
+		LatencyHistogram waits = sim.getWaitHistogram();
+		LatencyHistogram checkOuts = sim.getCheckOutHistogram();
+		this.multi = sim.isMulti();
+		this.numCounters = sim.getNumCounters();
+		this.time = context.getClock().getTime();
+		this.arrived = context.getCustomersArrived();
+		this.served = context.getCustomersServed();
+		this.checkedOut = context.getCustomersCheckedOut();
+		this.waiting = waiting;
+		this.averageWaitTime = context.getAverageWaitTime();
+		this.maxWaitTime = context.getMaxWaitTime();
+		this.averageCheckOutTime = context.getAverageCheckOutTime();
+		this.idleTime = sim.getTotalIdleTime();
+		this.maxLineLength = sim.getMaxLineLength();
+		this.waitP50 = waits.getPercentile(50);
+		this.waitP90 = waits.getPercentile(90);
+		this.waitP99 = waits.getPercentile(99);
+		this.waitP999 = waits.getPercentile(99.9);
+		this.checkOutP50 = checkOuts.getPercentile(50);
+		this.checkOutP90 = checkOuts.getPercentile(90);
+		this.checkOutP99 = checkOuts.getPercentile(99);
+		this.checkOutP999 = checkOuts.getPercentile(99.9);
+		this.lines = Collections.unmodifiableList(lines);
+		this.counters = Collections.unmodifiableList(counters);
+	}
+
+	/**
+	 * Returns whether there was a line per counter
+	 * @return true for a line per counter, false for a single line
+	 */
+	public boolean isMulti() {
+		return multi;
+	}
+
+	public int getNumCounters() {
+		return numCounters;
+	}
+
+	/**
+	 * Gets the time of the simulation when the stats were recorded
+	 * @return the time in seconds
+	 */
+	public int getTime() {
+		return time;
+	}
+
+	public long getArrived() {
+		return arrived;
+	}
+
+	/**
+	 * Gets the number of customers who left a line for a counter
+	 * @return the number of customers served
+	 */
+	public long getServed() {
+		return served;
+	}
+
+	public long getCheckedOut() {
+		return checkedOut;
+	}
+
+	/**
+	 * Gets the number of customers still in a line, across all the lines
+	 * @return the number of customers waiting
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public double getAverageWaitTime() {
+		return averageWaitTime;
+	}
+
+	public int getMaxWaitTime() {
+		return maxWaitTime;
+	}
+
+	public double getAverageCheckOutTime() {
+		return averageCheckOutTime;
+	}
+
+	/**
+	 * Gets the number of seconds the counters were idle, added across all the counters
+	 * @return the total idle time
+	 */
+	public long getIdleTime() {
+		return idleTime;
+	}
+
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
+
+	public long getWaitP50() {
+		return waitP50;
+	}
+
+	public long getWaitP90() {
+		return waitP90;
+	}
+
+	public long getWaitP99() {
+		return waitP99;
+	}
+
+	public long getWaitP999() {
+		return waitP999;
+	}
+
+	public long getCheckOutP50() {
+		return checkOutP50;
+	}
+
+	public long getCheckOutP90() {
+		return checkOutP90;
+	}
+
+	public long getCheckOutP99() {
+		return checkOutP99;
+	}
+
+	public long getCheckOutP999() {
+		return checkOutP999;
+	}
+
+	public List<LineStats> getLines() {
+		return lines;
+	}
+
+	public List<CounterStats> getCounters() {
+		return counters;
+	}
+}
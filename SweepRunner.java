@@ -0,0 +1,264 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+/**
+ * Runs the same simulation data file with a range of counter counts and both
+ * line set ups (single line and a line per counter) and prints the results side
+ * by side in one table. Every combination gets its own clock and store and they
+ * all run at the same time on a fork-join pool, sharing one copy of the file.
+ * The waits are measured from the time a customer enters the line, and a
+ * combination that cannot be simulated gets a row with its error.
+ *
+ * Usage: java SweepRunner file minWindows maxWindows [single|multiple|both] [--verify]
+ *        [--cache dir] [--cache-size MB]
+ *
+ * With --verify every combination is run a second time on its own after the sweep
+ * and the two results are checked to be identical. With --cache the results are kept
+ * in a ResultCache in the folder (64 MB at most by default) and only the combinations
+ * that are not already there are simulated.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class SweepRunner {
+
+	/**
+	 * Simulates the store from the trace with the given settings
+	 * @param trace the customers to simulate
+	 * @param numWindows the number of counters that are open
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @return the stats at the end of the simulation, or the error if it could not be run
+	 */
+	public static SimulationResult simulate(ArrivalTrace trace, int numWindows, boolean multi) {
+		if(numWindows < 1) {
+			return SimulationResult.failed(numWindows, multi, "A store needs at least one counter");
+		}
+		try {
+			Store sim = new Store(numWindows, multi, new SimulationContext());
+			new EventSimulator(sim).run(trace.replay(), trace.getMinutes()*60);
+			return new SimulationResult(numWindows, multi, sim);
+		} catch (RuntimeException e) {
+			//a store that can't be simulated such as one with no counters
+			return SimulationResult.failed(numWindows, multi, e.getMessage());
+		}
+	}
+
+	/**
+	 * Simulates every combination of counter count and line set up at the same time
+	 * @param trace the customers to simulate
+	 * @param minWindows the smallest number of counters to try
+	 * @param maxWindows the largest number of counters to try
+	 * @param layouts the line set ups to try (false for single line, true for multiple)
+	 * @param pool the pool to run the simulations on
+	 * @return the results ordered by line set up and then by counter count
+	 */
+	public static List<SimulationResult> sweep(ArrivalTrace trace, int minWindows, int maxWindows,
+			boolean[] layouts, ForkJoinPool pool) {
+		List<ForkJoinTask<SimulationResult>> runs = new ArrayList<ForkJoinTask<SimulationResult>>();
+		for(boolean multi : layouts) {
+			for(int n = minWindows; n <= maxWindows; n++) {
+				int numWindows = n;
+				runs.add(pool.submit(() -> simulate(trace, numWindows, multi)));
+			}
+		}
+		List<SimulationResult> results = new ArrayList<SimulationResult>();
+		for(ForkJoinTask<SimulationResult> run : runs) {
+			results.add(run.join());
+		}
+		return results;
+	}
+
+	/**
+	 * Simulates every combination that is not in the cache at the same time and keeps
+	 * the new results in the cache
+	 * @param trace the customers to simulate
+	 * @param traceHash the hash of the file the trace was loaded from
+	 * @param minWindows the smallest number of counters to try
+	 * @param maxWindows the largest number of counters to try
+	 * @param layouts the line set ups to try (false for single line, true for multiple)
+	 * @param pool the pool to run the simulations on
+	 * @param cache the results of earlier sweeps
+	 * @return the results ordered by line set up and then by counter count
+	 */
+	public static List<SimulationResult> sweep(ArrivalTrace trace, String traceHash, int minWindows,
+			int maxWindows, boolean[] layouts, ForkJoinPool pool, ResultCache cache) {
+		List<SimulationResult> results = new ArrayList<SimulationResult>();
+		List<ForkJoinTask<SimulationResult>> runs = new ArrayList<ForkJoinTask<SimulationResult>>();
+		for(boolean multi : layouts) {
+			for(int n = minWindows; n <= maxWindows; n++) {
+				int numWindows = n;
+				String key = cacheKey(traceHash, numWindows, multi);
+				SimulationResult cached = parseCached(cache.get(key));
+				if(cached != null) {
+					results.add(cached);
+					runs.add(null);
+				}
+				else {
+					results.add(null);
+					runs.add(pool.submit(() -> {
+						SimulationResult result = simulate(trace, numWindows, multi);
+						if(!result.isFailed()) {
+							cache.put(key, result.format());
+						}
+						return result;
+					}));
+				}
+			}
+		}
+		for(int i = 0; i < runs.size(); i++) {
+			if(runs.get(i) != null) {
+				results.set(i, runs.get(i).join());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Reads a result from the cache, counting one that cannot be read, such as one
+	 * kept by an older version, as missing
+	 */
+	private static SimulationResult parseCached(String cached) {
+		if(cached == null) {
+			return null;
+		}
+		try {
+			return SimulationResult.parse(cached);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Makes the cache key for one combination of a sweep
+	 */
+	private static String cacheKey(String traceHash, int numWindows, boolean multi) {
+		return ResultCache.key(traceHash, "sweep counters " + numWindows + " " + (multi ? "multiple" : "single"));
+	}
+
+	/**
+	 * Runs every simulation from a sweep again one at a time and checks that it gives
+	 * the same result as it did while running alongside the others
+	 * @param trace the customers that were simulated
+	 * @param results the results from the sweep
+	 * @return the number of simulations that did not match
+	 */
+	public static int verify(ArrivalTrace trace, List<SimulationResult> results) {
+		int mismatches = 0;
+		for(SimulationResult result : results) {
+			if(!result.equals(simulate(trace, result.getNumWindows(), result.isMulti()))) {
+				System.out.println("Mismatch for " + result.getNumWindows() + " counters ("
+						+ (result.isMulti() ? "multiple" : "single") + ")");
+				mismatches++;
+			}
+		}
+		return mismatches;
+	}
+
+	/**
+	 * Prints the results of a sweep as one table with a row per simulation
+	 * @param simName the name of the simulation
+	 * @param results the results to print
+	 */
+	public static void printTable(String simName, List<SimulationResult> results) {
+		System.out.println("Sweep for the simulation: " + simName);
+		System.out.println();
+		System.out.printf("%-10s %-9s %12s %14s %10s %10s %18s %16s%n", "Counters", "Lines", "Checked out",
+				"Average wait", "Wait p90", "Wait p99", "Average check out", "Max line length");
+		System.out.println("------------------------------------------------------------------------------------------------------");
+		for(SimulationResult result : results) {
+			if(result.isFailed()) {
+				System.out.printf("%-10d %-9s Could not be simulated: %s%n", result.getNumWindows(),
+						result.isMulti() ? "Multiple" : "Single", result.getError());
+				continue;
+			}
+			System.out.printf("%-10d %-9s %12d %14.2f %10d %10d %18.2f %16d%n", result.getNumWindows(),
+					result.isMulti() ? "Multiple" : "Single", result.getCustomersCheckedOut(),
+					result.getAverageWaitTime(), result.getWaitP90(), result.getWaitP99(),
+					result.getAverageCheckOutTime(), result.getMaxLineLength());
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 3) {
+			System.out.println("Usage: java SweepRunner file minWindows maxWindows [single|multiple|both] [--verify]"
+					+ " [--cache dir] [--cache-size MB]");
+			return;
+		}
+		int minWindows = Integer.parseInt(args[1]);
+		int maxWindows = Integer.parseInt(args[2]);
+		String type = "both";
+		boolean verify = false;
+		String cacheDir = null;
+		long cacheMegabytes = 64;
+		for(int i = 3; i < args.length; i++) {
+			if(args[i].equals("--verify")) {
+				verify = true;
+			}
+			else if(args[i].equals("--cache") || args[i].equals("--cache-size")) {
+				if(i + 1 == args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+				if(args[i].equals("--cache")) {
+					cacheDir = args[++i];
+				}
+				else {
+					cacheMegabytes = Long.parseLong(args[++i]);
+				}
+			}
+			else {
+				type = args[i].toLowerCase();
+			}
+		}
+		boolean[] layouts;
+		if(type.equals("single")) {
+			layouts = new boolean[] {false};
+		}
+		else if(type.equals("multiple")) {
+			layouts = new boolean[] {true};
+		}
+		else {
+			layouts = new boolean[] {false, true};
+		}
+
+		try {
+			ArrivalTrace trace = ArrivalTrace.load(args[0]);
+			ForkJoinPool pool = new ForkJoinPool();
+			ResultCache cache = null;
+			List<SimulationResult> results;
+			if(cacheDir == null) {
+				results = sweep(trace, minWindows, maxWindows, layouts, pool);
+			}
+			else {
+				cache = new ResultCache(Paths.get(cacheDir), cacheMegabytes * 1024 * 1024);
+				results = sweep(trace, ResultCache.hashFile(Paths.get(args[0])), minWindows, maxWindows,
+						layouts, pool, cache);
+			}
+			pool.shutdown();
+			printTable(trace.getName(), results);
+			if(cache != null) {
+				System.out.println();
+				System.out.println(cache.getHits() + " of " + results.size() + " simulations came from the cache");
+			}
+			if(verify) {
+				System.out.println();
+				System.out.println("Verified " + (results.size() - verify(trace, results)) + " of "
+						+ results.size() + " simulations against a run on their own");
+			}
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not read the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,129 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+/**
+ * Writes text to a file through a direct buffer and a file channel without
+ * creating objects: numbers are written digit by digit and text is encoded as
+ * UTF-8 straight into the buffer. The buffer is written out whenever it fills up.
+ * It is not safe to use from several threads at once, so the classes that share
+ * one do their own locking.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class TextChannelWriter implements Closeable {
+	private final FileChannel out;
+	private final ByteBuffer buffer;
+
+	/**
+	 * Creates a writer for a file, replacing anything already in it
+	 * @param filename the file to write to
+	 * @throws IOException if the file cannot be written
+	 */
+	public TextChannelWriter(String filename) throws IOException {
+		this.out = new FileOutputStream(filename).getChannel();
+		this.buffer = ByteBuffer.allocateDirect(64 << 10);
+	}
+
+	/**
+	 * Adds a byte to the buffer, writing the buffer out if it is full
+	 * @param b the byte to add
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeByte(int b) throws IOException {
+		if(!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put((byte) b);
+	}
+
+	/**
+	 * Adds a whole number to the buffer as text without creating a string
+	 * @param value the number to add
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeLong(long value) throws IOException {
+		if(value < 0) {
+			writeByte('-');
+			value = -value;
+		}
+		long divisor = 1;
+		while(value / divisor >= 10) {
+			divisor *= 10;
+		}
+		while(divisor > 0) {
+			writeByte('0' + (int) ((value / divisor) % 10));
+			divisor /= 10;
+		}
+	}
+
+	/**
+	 * Adds a decimal number to the buffer, written so it reads back exactly
+	 * @param value the number to add
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeDouble(double value) throws IOException {
+		writeText(Double.toString(value));
+	}
+
+	/**
+	 * Adds text to the buffer as UTF-8, encoding it one character at a time. A half
+	 * of a surrogate pair on its own is written as ?, the same as String.getBytes.
+	 * @param text the text to add
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeText(String text) throws IOException {
+		for(int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if(ch < 0x80) {
+				writeByte(ch);
+			}
+			else if(ch < 0x800) {
+				writeByte(0xc0 | (ch >> 6));
+				writeByte(0x80 | (ch & 0x3f));
+			}
+			else if(!Character.isSurrogate(ch)) {
+				writeByte(0xe0 | (ch >> 12));
+				writeByte(0x80 | ((ch >> 6) & 0x3f));
+				writeByte(0x80 | (ch & 0x3f));
+			}
+			else if(Character.isHighSurrogate(ch) && i + 1 < text.length()
+					&& Character.isLowSurrogate(text.charAt(i + 1))) {
+				int code = Character.toCodePoint(ch, text.charAt(++i));
+				writeByte(0xf0 | (code >> 18));
+				writeByte(0x80 | ((code >> 12) & 0x3f));
+				writeByte(0x80 | ((code >> 6) & 0x3f));
+				writeByte(0x80 | (code & 0x3f));
+			}
+			else {
+				writeByte('?');
+			}
+		}
+	}
+
+	/**
+	 * Writes everything in the buffer to the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes out everything in the buffer and closes the file
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+}
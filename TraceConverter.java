@@ -0,0 +1,62 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.InputMismatchException;
+/**
+ * Converts a simulation data file to the compact binary trace format, so it
+ * can be replayed without parsing text every time. The input can be a text
+ * file or a gzipped text file, and the customers are converted one at a time
+ * so files of any size can be converted.
+ *
+ * Usage: java TraceConverter input output
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class TraceConverter {
+
+	/**
+	 * Copies every customer from a source into a binary trace
+	 * @param source the customers to copy
+	 * @param output the file to write the binary trace to
+	 * @return the number of customers copied
+	 * @throws IOException if the trace cannot be written
+	 */
+	public static long convert(ArrivalSource source, String output) throws IOException {
+		long count = 0;
+		try (BinaryTraceWriter writer = new BinaryTraceWriter(output, source.getName(),
+				source.getMinutes(), source.getNumWindows())) {
+			while(source.next()) {
+				writer.write(source.getTime(), source.getNumItems());
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public static void main(String[] args) {
+		if(args.length != 2) {
+			System.out.println("Usage: java TraceConverter input output");
+			return;
+		}
+		try (ArrivalSource source = ArrivalSource.open(args[0])) {
+			long start = System.nanoTime();
+			long count = convert(source, args[1]);
+			long inputSize = new File(args[0]).length();
+			long outputSize = new File(args[1]).length();
+			System.out.printf("Converted %d customers in %.2f s: %d bytes to %d bytes (%.1fx smaller)%n",
+					count, (System.nanoTime() - start) / 1e9, inputSize, outputSize,
+					outputSize == 0 ? 0.0 : (double) inputSize / outputSize);
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IOException e) {
+			System.out.println("Could not convert the file: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			System.out.println("Could not read the file: " + e.getCause().getMessage());
+		} catch (InputMismatchException e) {
+			System.out.println("Bad simulation data: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,531 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * Runs a sweep that is too big for one program across several worker programs on
+ * the same machine. The coordinator splits the sweep into units of work, one for
+ * each data file, counter count, line set up and seed, and starts the workers as
+ * separate Java programs that connect back to it over a local socket. Each worker
+ * simulates the units it is handed with its own Store and sends back a
+ * ChainSimulator.Rollup, which the coordinator merges by counter count and line
+ * set up. Every worker has its own heap, so the sweep is not limited by one heap
+ * or slowed down by one garbage collector.
+ *
+ * If a worker dies or its connection breaks, the unit it was working on is handed
+ * to another worker and a new worker is started in its place. A unit is tried at
+ * most --retries more times before it is counted as failed. A unit whose file
+ * cannot be read fails straight away, since trying again would not help.
+ *
+ * Usage: java WorkerFarm [options] file|glob...
+ *   --min N, --max N   the range of counter counts (the number in each file by default)
+ *   --layout L         single, multiple or both (default both)
+ *   --reps R           seeds per combination (default 1); the seed goes to the policy
+ *   --seed S           the first seed (default 1)
+ *   --policy P         the dispatch policy for a line per counter (default shortest)
+ *   --workers N        the number of worker programs (default the number of processors,
+ *                      0 to simulate everything in this program instead)
+ *   --heap SIZE        the heap for each worker, such as 512m (default 256m)
+ *   --retries N        the times a unit is tried again after its worker dies (default 2)
+ *   --die-after N      makes every worker quit without answering after N units, for
+ *                      trying out the retries
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class WorkerFarm {
+	private static final int CONNECT_SECONDS = 60;
+	private static final int START_FAILURES = 3;
+	private List<String> files = new ArrayList<String>();
+	private int minWindows = 0;
+	private int maxWindows = 0;
+	private boolean[] layouts = {false, true};
+	private int reps = 1;
+	private long seed = 1;
+	private String policy = "shortest";
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private String heap = "256m";
+	private int retries = 2;
+	private int dieAfter = 0;
+
+	private final LinkedBlockingDeque<Unit> pending = new LinkedBlockingDeque<Unit>();
+	private final AtomicInteger remaining = new AtomicInteger();
+	private final Map<Long, ChainSimulator.Rollup> results = new TreeMap<Long, ChainSimulator.Rollup>();
+	private final List<String> failures = new ArrayList<String>();
+	private final Map<Integer, CompletableFuture<Socket>> connecting = new ConcurrentHashMap<Integer, CompletableFuture<Socket>>();
+	private final AtomicInteger nextToken = new AtomicInteger();
+	private final AtomicInteger restarts = new AtomicInteger();
+
+	/**
+	 * One simulation of the sweep
+	 */
+	private static class Unit {
+		private final String file;
+		private final int numWindows;
+		private final boolean multi;
+		private final long seed;
+		private int attempts;
+
+		private Unit(String file, int numWindows, boolean multi, long seed) {
+			this.file = file;
+			this.numWindows = numWindows;
+			this.multi = multi;
+			this.seed = seed;
+		}
+
+		/**
+		 * Gets the key of the results the unit is merged into, which sorts the single
+		 * line set up first and then by counter count
+		 */
+		private long resultKey() {
+			return multi ? (1L << 32) + numWindows : numWindows;
+		}
+
+		@Override
+		public String toString() {
+			return file + " with " + (numWindows == 0 ? "its" : Integer.toString(numWindows)) + " counters (" + (multi ? "multiple" : "single") + ", seed " + seed + ")";
+		}
+	}
+
+	/**
+	 * A running worker program and its connection
+	 */
+	private static class Worker {
+		private final Process process;
+		private final Socket socket;
+
+		private Worker(Process process, Socket socket) {
+			this.process = process;
+			this.socket = socket;
+		}
+	}
+
+	/**
+	 * Simulates one unit
+	 * @param trace the customers to simulate
+	 * @param numWindows the number of counters, or 0 for the number in the file
+	 * @param multi true if there is a line per counter, false for a single line
+	 * @param policy the dispatch policy for a line per counter
+	 * @param seed the seed for the dispatch policy
+	 * @return the rollup of the store
+	 */
+	public static ChainSimulator.Rollup simulate(ArrivalTrace trace, int numWindows, boolean multi, String policy,
+			long seed) {
+		Store sim = new Store(numWindows > 0 ? numWindows : trace.getNumWindows(), multi, new SimulationContext(),
+				DispatchPolicy.forName(policy, seed));
+		new EventSimulator(sim).run(trace.replay(), trace.getMinutes()*60);
+		ChainSimulator.Rollup rollup = new ChainSimulator.Rollup();
+		rollup.add(sim);
+		return rollup;
+	}
+
+	/**
+	 * Describes why a file could not be simulated, the same way the other runners do
+	 * @param e the problem
+	 * @return the message
+	 */
+	private static String fileError(Exception e) {
+		if(e instanceof FileNotFoundException || e instanceof NoSuchFileException) {
+			return "File not found";
+		}
+		if(e instanceof IOException) {
+			return "Could not read the file: " + e.getMessage();
+		}
+		if(e instanceof UncheckedIOException) {
+			return "Could not read the file: " + e.getCause().getMessage();
+		}
+		//bad data, or a store that can't be simulated such as one with no counters
+		return "Bad simulation data: " + e.getMessage();
+	}
+
+	/**
+	 * Runs a worker: connects to the coordinator, then simulates the units it is sent
+	 * until the coordinator closes the connection. The file of the last unit is kept
+	 * loaded, since the units of a file are sent one after another.
+	 * @param port the coordinator's port
+	 * @param token the number the coordinator gave this worker
+	 * @param dieAfter the number of units to answer before quitting, 0 to never quit
+	 * @throws IOException if the connection fails
+	 */
+	public static void work(int port, int token, int dieAfter) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(token);
+			out.flush();
+			String loaded = null;
+			ArrivalTrace trace = null;
+			int answered = 0;
+			while(true) {
+				String file;
+				try {
+					file = in.readUTF();
+				} catch (EOFException e) {
+					return;
+				}
+				int numWindows = in.readInt();
+				boolean multi = in.readBoolean();
+				long seed = in.readLong();
+				String policy = in.readUTF();
+				if(dieAfter > 0 && answered == dieAfter) {
+					Runtime.getRuntime().halt(3);
+				}
+				ChainSimulator.Rollup rollup;
+				String error = null;
+				try {
+					if(!file.equals(loaded)) {
+						trace = null;
+						trace = ArrivalTrace.load(file);
+						loaded = file;
+					}
+					rollup = simulate(trace, numWindows, multi, policy, seed);
+				} catch (IOException | RuntimeException e) {
+					loaded = null;
+					rollup = null;
+					error = fileError(e);
+				}
+				out.writeBoolean(rollup != null);
+				if(rollup != null) {
+					rollup.writeState(out);
+				}
+				else {
+					out.writeUTF(error);
+				}
+				out.flush();
+				answered++;
+			}
+		}
+	}
+
+	/**
+	 * Starts a worker program and waits for it to connect
+	 * @param server the coordinator's socket
+	 * @return the worker's process and connection, or null if it did not connect
+	 */
+	private Worker startWorker(ServerSocket server) {
+		int token = nextToken.getAndIncrement();
+		CompletableFuture<Socket> connection = new CompletableFuture<Socket>();
+		connecting.put(token, connection);
+		Process process = null;
+		try {
+			String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			process = new ProcessBuilder(java, "-Xmx" + heap, "-cp", System.getProperty("java.class.path"),
+					"WorkerFarm", "--worker", Integer.toString(server.getLocalPort()), Integer.toString(token),
+					Integer.toString(dieAfter))
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start();
+			Process started = process;
+			//stop waiting as soon as the worker dies before connecting
+			started.onExit().thenRun(() -> connection.completeExceptionally(new EOFException("worker exited")));
+			return new Worker(process, connection.get(CONNECT_SECONDS, TimeUnit.SECONDS));
+		} catch (IOException | TimeoutException | ExecutionException e) {
+			System.err.println("Could not start a worker: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			connecting.remove(token);
+		}
+		if(process != null) {
+			process.destroyForcibly();
+		}
+		return null;
+	}
+
+	/**
+	 * Hands the connections of the workers to the threads that started them, by the
+	 * number each worker sends first
+	 * @param server the coordinator's socket
+	 */
+	private void acceptWorkers(ServerSocket server) {
+		while(!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				socket.setSoTimeout(CONNECT_SECONDS * 1000);
+				int token = new DataInputStream(socket.getInputStream()).readInt();
+				socket.setSoTimeout(0);
+				CompletableFuture<Socket> connection = connecting.get(token);
+				if(connection == null || !connection.complete(socket)) {
+					socket.close();
+				}
+			} catch (IOException e) {
+				//the socket was closed at the end, or a worker died while connecting
+			}
+		}
+	}
+
+	/**
+	 * Keeps one worker busy until every unit is done, starting a new worker whenever
+	 * the current one dies
+	 * @param server the coordinator's socket
+	 */
+	private void runSlot(ServerSocket server) {
+		int startFailures = 0;
+		while(remaining.get() > 0 && startFailures < START_FAILURES) {
+			Worker worker = startWorker(server);
+			if(worker == null) {
+				startFailures++;
+				continue;
+			}
+			startFailures = 0;
+			Process process = worker.process;
+			try (Socket socket = worker.socket) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				while(remaining.get() > 0) {
+					Unit unit = pending.poll(100, TimeUnit.MILLISECONDS);
+					if(unit == null) {
+						continue;
+					}
+					try {
+						out.writeUTF(unit.file);
+						out.writeInt(unit.numWindows);
+						out.writeBoolean(unit.multi);
+						out.writeLong(unit.seed);
+						out.writeUTF(policy);
+						out.flush();
+						if(in.readBoolean()) {
+							ChainSimulator.Rollup rollup = new ChainSimulator.Rollup();
+							rollup.readState(in);
+							finish(unit, rollup, null);
+						}
+						else {
+							finish(unit, null, in.readUTF());
+						}
+					} catch (IOException e) {
+						unit.attempts++;
+						if(unit.attempts > retries) {
+							finish(unit, null, "Its worker died " + unit.attempts + (unit.attempts == 1 ? " time" : " times"));
+						}
+						else {
+							pending.addFirst(unit);
+						}
+						throw e;
+					}
+				}
+			} catch (IOException e) {
+				restarts.incrementAndGet();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				//closing the connection tells a healthy worker to quit
+				try {
+					if(!process.waitFor(5, TimeUnit.SECONDS)) {
+						process.destroyForcibly();
+					}
+				} catch (InterruptedException e) {
+					process.destroyForcibly();
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a finished unit
+	 * @param unit the unit
+	 * @param rollup the unit's results, or null if it failed
+	 * @param error why the unit failed
+	 */
+	private synchronized void finish(Unit unit, ChainSimulator.Rollup rollup, String error) {
+		ChainSimulator.Rollup merged = results.computeIfAbsent(unit.resultKey(), k -> new ChainSimulator.Rollup());
+		if(rollup != null) {
+			merged.merge(rollup);
+		}
+		else {
+			merged.addFailure();
+			failures.add(unit + ": " + error);
+		}
+		remaining.decrementAndGet();
+	}
+
+	/**
+	 * Splits the sweep into units
+	 */
+	private void makeUnits() {
+		for(String file : files) {
+			for(boolean multi : layouts) {
+				for(int n = minWindows; n <= maxWindows; n++) {
+					for(int r = 0; r < reps; r++) {
+						pending.add(new Unit(file, n, multi, seed + r));
+					}
+				}
+			}
+		}
+		remaining.set(pending.size());
+	}
+
+	/**
+	 * Simulates every unit on the workers and merges the results
+	 * @throws IOException if the coordinator's socket cannot be opened
+	 * @throws InterruptedException if the run is interrupted while waiting
+	 */
+	public void run() throws IOException, InterruptedException {
+		makeUnits();
+		if(workers == 0) {
+			runHere();
+			return;
+		}
+		try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			Thread acceptor = new Thread(() -> acceptWorkers(server), "worker-acceptor");
+			acceptor.setDaemon(true);
+			acceptor.start();
+			List<Thread> slots = new ArrayList<Thread>();
+			for(int w = 0; w < workers; w++) {
+				Thread slot = new Thread(() -> runSlot(server), "worker-" + w);
+				slots.add(slot);
+				slot.start();
+			}
+			for(Thread slot : slots) {
+				slot.join();
+			}
+		}
+		//every worker failed to start, so nothing is left to run the rest
+		Unit unit;
+		while((unit = pending.poll()) != null) {
+			finish(unit, null, "No worker could be started");
+		}
+	}
+
+	/**
+	 * Simulates every unit in this program, one after another
+	 */
+	private void runHere() {
+		Unit unit;
+		String loaded = null;
+		ArrivalTrace trace = null;
+		while((unit = pending.poll()) != null) {
+			try {
+				if(!unit.file.equals(loaded)) {
+					trace = null;
+					trace = ArrivalTrace.load(unit.file);
+					loaded = unit.file;
+				}
+				finish(unit, simulate(trace, unit.numWindows, unit.multi, policy, unit.seed), null);
+			} catch (IOException | RuntimeException e) {
+				loaded = null;
+				finish(unit, null, fileError(e));
+			}
+		}
+	}
+
+	/**
+	 * Prints the merged results with a row per line set up and counter count
+	 */
+	public void printResults() {
+		System.out.printf("%-9s %-10s %8s %14s %14s %10s %10s %12s%n", "Lines", "Counters", "Units",
+				"Checked out", "Average wait", "Wait p90", "Wait p99", "Utilization");
+		System.out.println("------------------------------------------------------------------------------------------");
+		for(Map.Entry<Long, ChainSimulator.Rollup> entry : results.entrySet()) {
+			boolean multi = entry.getKey() >= (1L << 32);
+			int numWindows = (int) (long) entry.getKey();
+			ChainSimulator.Rollup rollup = entry.getValue();
+			System.out.printf("%-9s %-10s %8d %14d %14.2f %10d %10d %11.2f%%%n",
+					multi ? "Multiple" : "Single", numWindows == 0 ? "file" : Integer.toString(numWindows),
+					rollup.getStores(), rollup.getCheckedOut(), rollup.getAverageWaitTime(),
+					rollup.getWaitTimes().getPercentile(90), rollup.getWaitTimes().getPercentile(99),
+					rollup.getUtilization() * 100);
+		}
+		if(workers > 0) {
+			System.out.println();
+			System.out.println("Workers restarted: " + restarts.get());
+		}
+		for(String failure : failures) {
+			System.out.println("Failed: " + failure);
+		}
+	}
+
+	/**
+	 * Reads the options and files from the command line
+	 * @param args the command line arguments
+	 * @throws IOException if a glob's folder cannot be listed
+	 */
+	public void parseArgs(String[] args) throws IOException {
+		for(int i = 0; i < args.length; i++) {
+			if(!args[i].startsWith("--")) {
+				files.addAll(BatchSimulator.expand(args[i]));
+				continue;
+			}
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[++i];
+			switch(args[i - 1]) {
+				case "--min": minWindows = Integer.parseInt(value); break;
+				case "--max": maxWindows = Integer.parseInt(value); break;
+				case "--layout":
+					layouts = value.equals("single") ? new boolean[] {false}
+							: value.equals("multiple") ? new boolean[] {true} : new boolean[] {false, true};
+					break;
+				case "--reps": reps = Integer.parseInt(value); break;
+				case "--seed": seed = Long.parseLong(value); break;
+				case "--policy": DispatchPolicy.forName(value, 1); policy = value; break;
+				case "--workers": workers = Integer.parseInt(value); break;
+				case "--heap": heap = value; break;
+				case "--retries": retries = Integer.parseInt(value); break;
+				case "--die-after": dieAfter = Integer.parseInt(value); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+			}
+		}
+		if(maxWindows < minWindows) {
+			maxWindows = minWindows;
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length == 4 && args[0].equals("--worker")) {
+			try {
+				work(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+			} catch (IOException e) {
+				System.err.println("Worker lost the coordinator: " + e.getMessage());
+				System.exit(1);
+			}
+			return;
+		}
+		WorkerFarm farm = new WorkerFarm();
+		try {
+			farm.parseArgs(args);
+		} catch (IOException e) {
+			System.out.println("Could not read the folder: " + e.getMessage());
+			return;
+		}
+		if(farm.files.isEmpty()) {
+			System.out.println("Usage: java WorkerFarm [--min N] [--max N] [--layout single|multiple|both] [--reps R]"
+					+ " [--seed S] [--policy P] [--workers N] [--heap SIZE] [--retries N] file|glob...");
+			return;
+		}
+		try {
+			farm.run();
+			farm.printResults();
+			if(!farm.failures.isEmpty()) {
+				System.exit(1);
+			}
+		} catch (IOException e) {
+			System.out.println("Could not open the coordinator's socket: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
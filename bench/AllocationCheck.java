@@ -0,0 +1,88 @@
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+/**
+ * Checks that the simulation does not create objects for each customer once it
+ * is running. A single line store is fed the first half of a long day of made-up
+ * customers so its line and event queue have grown to their working size and the
+ * JIT has compiled the hot paths, then the bytes allocated while it simulates the
+ * second half are divided by the number of customers in that half.
+ *
+ * Usage: java AllocationCheck [--customers N] [--counters N] [--limit BYTES]
+ *
+ * The process exits with status 1 if the simulation allocated more than the
+ * limit (0.1 bytes by default) per customer.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class AllocationCheck {
+
+	/**
+	 * Gets the number of bytes the current thread has allocated so far
+	 * @return the bytes allocated
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(!(bean instanceof com.sun.management.ThreadMXBean)) {
+			throw new IllegalStateException("This JVM cannot measure allocation");
+		}
+		return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Feeds customers from the source to the engine until the given number have arrived
+	 * @param source the customers
+	 * @param engine the engine running the store
+	 * @param customers how many customers to feed
+	 * @return the number of customers fed
+	 */
+	private static long feed(ArrivalSource source, EventSimulator engine, long customers) {
+		long fed = 0;
+		while(fed < customers && source.next()) {
+			engine.offer(source.getTime(), source.getNumItems());
+			fed++;
+		}
+		return fed;
+	}
+
+	public static void main(String[] args) {
+		int customers = 2000000;
+		int counters = 60;
+		double limit = 0.1;
+		for(int i = 0; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			switch(args[i]) {
+				case "--customers": customers = Integer.parseInt(args[i + 1]); break;
+				case "--counters": counters = Integer.parseInt(args[i + 1]); break;
+				case "--limit": limit = Double.parseDouble(args[i + 1]); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		//about 1200 customers an hour keeps 60 counters busy without the line growing
+		double rate = 1200;
+		int minutes = (int) Math.ceil(customers / rate * 60);
+		ArrivalTrace trace = new ArrivalTrace(new ArrivalGenerator("Allocation check", minutes, counters,
+				new double[] {rate}, ItemHistogram.parse("1:1,5:1,10:1,20:1"), new SplittableRandom(1)));
+		Store sim = new Store(counters, false, new SimulationContext());
+		EventSimulator engine = new EventSimulator(sim);
+		ArrivalSource source = trace.replay();
+
+		feed(source, engine, trace.size() / 2);
+		long before = allocatedBytes();
+		long measured = feed(source, engine, Long.MAX_VALUE);
+		engine.advanceTo(minutes*60);
+		long bytes = allocatedBytes() - before;
+
+		double perCustomer = measured == 0 ? 0.0 : (double) bytes / measured;
+		System.out.printf("Allocated %d bytes for %d customers (%.4f bytes per customer, limit %.4f)%n",
+				bytes, measured, perCustomer, limit);
+		if(perCustomer > limit) {
+			System.out.println("The simulation allocates for each customer");
+			System.exit(1);
+		}
+	}
+}
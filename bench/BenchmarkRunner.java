@@ -0,0 +1,190 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+/**
+ * Measures the throughput and allocation rate of the simulation core. Every
+ * benchmark in SimulationBenchmarks is run for each combination of counter
+ * count, arrival rate and simulated length, with warm up iterations first so
+ * the JIT has compiled the hot paths. The results can be saved as a baseline
+ * and later runs compared against it, so an engine change that makes things
+ * slower or allocate more shows up as a regression.
+ *
+ * Usage: java BenchmarkRunner [options]
+ *   --counters N1,N2,...  counter counts (default 1,10,100)
+ *   --rates R1,R2,...     arrivals per hour (default 120,1200)
+ *   --minutes M1,M2,...   simulated lengths in minutes (default 60,480)
+ *   --warmup N            warm up iterations (default 3)
+ *   --iterations N        measured iterations (default 5)
+ *   --only NAME           only run benchmarks whose name contains NAME
+ *   --save FILE           save the results as a baseline CSV
+ *   --baseline FILE       compare the results against a saved baseline
+ *   --tolerance PERCENT   slowdown allowed before a regression is reported (default 10)
+ *
+ * The process exits with status 1 if any benchmark regressed against the baseline.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class BenchmarkRunner {
+	private static final String HEADER = "benchmark,counters,rate,minutes,nsPerOp,bytesPerOp";
+	private int[] counters = {1, 10, 100};
+	private int[] rates = {120, 1200};
+	private int[] minutes = {60, 480};
+	private int warmup = 3;
+	private int iterations = 5;
+	private String only = "";
+	private String save;
+	private String baseline;
+	private double tolerance = 10;
+
+	/**
+	 * Gets the number of bytes the current thread has allocated so far
+	 * @return the bytes allocated or -1 if the JVM cannot tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads a comma separated list of whole numbers
+	 * @param list the numbers written out
+	 * @return the numbers
+	 */
+	private static int[] parseInts(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for(int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	/**
+	 * Reads the settings from the command line arguments
+	 * @param args the command line arguments
+	 */
+	private void parseArgs(String[] args) {
+		for(int i = 0; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			switch(args[i]) {
+				case "--counters": counters = parseInts(value); break;
+				case "--rates": rates = parseInts(value); break;
+				case "--minutes": minutes = parseInts(value); break;
+				case "--warmup": warmup = Integer.parseInt(value); break;
+				case "--iterations": iterations = Integer.parseInt(value); break;
+				case "--only": only = value; break;
+				case "--save": save = value; break;
+				case "--baseline": baseline = value; break;
+				case "--tolerance": tolerance = Double.parseDouble(value); break;
+				default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a saved baseline
+	 * @param filename the baseline CSV
+	 * @return the time and bytes per operation of each benchmark, by its key
+	 * @throws IOException if the baseline cannot be read
+	 */
+	private static Map<String, double[]> loadBaseline(String filename) throws IOException {
+		Map<String, double[]> results = new HashMap<String, double[]>();
+		try (BufferedReader in = new BufferedReader(new FileReader(filename))) {
+			String line = in.readLine();
+			while((line = in.readLine()) != null) {
+				int split = line.lastIndexOf(',', line.lastIndexOf(',') - 1);
+				String[] values = line.substring(split + 1).split(",");
+				results.put(line.substring(0, split), new double[] {Double.parseDouble(values[0]),
+						Double.parseDouble(values[1])});
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Runs every benchmark with every combination of settings
+	 * @return true if nothing regressed against the baseline, false otherwise
+	 * @throws IOException if the baseline cannot be read or the results cannot be saved
+	 */
+	public boolean run() throws IOException {
+		Map<String, double[]> previous = baseline == null ? null : loadBaseline(baseline);
+		PrintWriter out = save == null ? null : new PrintWriter(new FileWriter(save));
+		if(out != null) {
+			out.println(HEADER);
+		}
+		boolean passed = true;
+		System.out.printf("%-32s %8s %6s %7s %12s %10s %12s %10s%n", "Benchmark", "Counters", "Rate",
+				"Minutes", "ns/op", "+/-", "ops/s", "bytes/op");
+		for(int rate : rates) {
+			for(int mins : minutes) {
+				//the same customers are used for every benchmark with these settings
+				ArrivalTrace trace = new ArrivalTrace(new ArrivalGenerator("Benchmark", mins, 1,
+						new double[] {rate}, ItemHistogram.parse("1:1,5:1,10:1,20:1"), new SplittableRandom(42)));
+				for(int numCounters : counters) {
+					for(SimulationBenchmarks.Benchmark benchmark : SimulationBenchmarks.ALL) {
+						if(!benchmark.getName().contains(only)) {
+							continue;
+						}
+						for(int i = 0; i < warmup; i++) {
+							benchmark.run(trace, numCounters);
+						}
+						RunningStats nanos = new RunningStats();
+						long totalOps = 0;
+						long bytes = 0;
+						for(int i = 0; i < iterations; i++) {
+							long before = allocatedBytes();
+							long start = System.nanoTime();
+							long ops = benchmark.run(trace, numCounters);
+							long elapsed = System.nanoTime() - start;
+							bytes += allocatedBytes() - before;
+							totalOps += ops;
+							nanos.add((double) elapsed / ops);
+						}
+						double bytesPerOp = (double) bytes / totalOps;
+						System.out.printf("%-32s %8d %6d %7d %12.1f %10.1f %12.0f %10.1f", benchmark.getName(),
+								numCounters, rate, mins, nanos.getMean(), nanos.getHalfWidth(),
+								1e9 / nanos.getMean(), bytesPerOp);
+						String key = benchmark.getName() + "," + numCounters + "," + rate + "," + mins;
+						if(out != null) {
+							out.printf("%s,%.3f,%.3f%n", key, nanos.getMean(), bytesPerOp);
+						}
+						if(previous != null && previous.containsKey(key)) {
+							double[] before = previous.get(key);
+							double change = (nanos.getMean() - before[0]) / before[0] * 100;
+							boolean regressed = change > tolerance || bytesPerOp > before[1] * (1 + tolerance / 100) + 1;
+							System.out.printf("  %+6.1f%%%s", change, regressed ? "  REGRESSION" : "");
+							passed &= !regressed;
+						}
+						System.out.println();
+					}
+				}
+			}
+		}
+		if(out != null) {
+			out.close();
+		}
+		return passed;
+	}
+
+	public static void main(String[] args) throws IOException {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.parseArgs(args);
+		if(!runner.run()) {
+			System.exit(1);
+		}
+	}
+}
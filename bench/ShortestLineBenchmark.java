@@ -0,0 +1,104 @@
+import java.util.SplittableRandom;
+/**
+ * Measures how long it takes to pick the shortest line as the number of lines
+ * grows, comparing the LineIndex used by Store with scanning every line. Both
+ * are given the same arrivals and departures and the benchmark checks that they
+ * pick the same line every time.
+ *
+ * Usage: java ShortestLineBenchmark [operations]
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class ShortestLineBenchmark {
+	private static final int[] LANES = {10, 50, 100, 500, 1000, 5000};
+
+	/**
+	 * Sends customers to the shortest line by scanning every line
+	 * @param numLines the number of lines
+	 * @param operations the number of arrivals and departures
+	 * @param seed the seed for choosing arrivals and departures
+	 * @param picks where to record the line picked by each arrival
+	 * @return the number of arrivals
+	 */
+	private static int scan(int numLines, int operations, long seed, int[] picks) {
+		SplittableRandom random = new SplittableRandom(seed);
+		int[] lengths = new int[numLines];
+		int arrivals = 0;
+		for(int op = 0; op < operations; op++) {
+			if(random.nextInt(2) == 0) {
+				int shortest = 0;
+				for(int i = 1; i < numLines; i++) {
+					if(lengths[i] < lengths[shortest]) {
+						shortest = i;
+					}
+				}
+				lengths[shortest]++;
+				picks[arrivals++] = shortest;
+			}
+			else {
+				int line = random.nextInt(numLines);
+				if(lengths[line] > 0) {
+					lengths[line]--;
+				}
+			}
+		}
+		return arrivals;
+	}
+
+	/**
+	 * Sends customers to the shortest line using a LineIndex
+	 * @param numLines the number of lines
+	 * @param operations the number of arrivals and departures
+	 * @param seed the seed for choosing arrivals and departures
+	 * @param picks where to record the line picked by each arrival
+	 * @return the number of arrivals
+	 */
+	private static int indexed(int numLines, int operations, long seed, int[] picks) {
+		SplittableRandom random = new SplittableRandom(seed);
+		LineIndex index = new LineIndex(numLines);
+		int arrivals = 0;
+		for(int op = 0; op < operations; op++) {
+			if(random.nextInt(2) == 0) {
+				int shortest = index.getSmallest();
+				index.update(shortest, index.getKey(shortest) + 1);
+				picks[arrivals++] = shortest;
+			}
+			else {
+				int line = random.nextInt(numLines);
+				if(index.getKey(line) > 0) {
+					index.update(line, index.getKey(line) - 1);
+				}
+			}
+		}
+		return arrivals;
+	}
+
+	public static void main(String[] args) {
+		int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		int[] scanPicks = new int[operations];
+		int[] indexPicks = new int[operations];
+		System.out.printf("%-8s %14s %14s %10s%n", "Lines", "Scan ns/op", "Index ns/op", "Same");
+		for(int numLines : LANES) {
+			//the first round of each warms up the JIT
+			long scanTime = 0;
+			long indexTime = 0;
+			boolean same = true;
+			for(int round = 0; round < 2; round++) {
+				long start = System.nanoTime();
+				int scanned = scan(numLines, operations, numLines, scanPicks);
+				scanTime = System.nanoTime() - start;
+				start = System.nanoTime();
+				int indexedCount = indexed(numLines, operations, numLines, indexPicks);
+				indexTime = System.nanoTime() - start;
+				same = scanned == indexedCount;
+				for(int i = 0; same && i < scanned; i++) {
+					same = scanPicks[i] == indexPicks[i];
+				}
+			}
+			System.out.printf("%-8d %14.1f %14.1f %10b%n", numLines, (double) scanTime / operations,
+					(double) indexTime / operations, same);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * The hot paths of the simulation that BenchmarkRunner measures. Each benchmark
+ * runs once over a prepared trace and returns how many operations it did, so the
+ * runner can report the time and allocation per operation.
+ *
+ * @author Jacob Borchert
+ * @version 2/1/2023
+ *
+ */
+public class SimulationBenchmarks {
+
+	/**
+	 * One benchmark of the simulation
+	 */
+	public interface Benchmark {
+		/**
+		 * Gets the name the benchmark is reported under
+		 * @return the name of the benchmark
+		 */
+		String getName();
+
+		/**
+		 * Runs the benchmark once
+		 * @param trace the customers to use
+		 * @param counters the number of counters in the store
+		 * @return the number of operations done
+		 */
+		long run(ArrivalTrace trace, int counters);
+	}
+
+	/** Sends every customer in the trace to the shortest line of a multiple line store */
+	public static final Benchmark CUSTOMER_ARRIVAL = new Benchmark() {
+		public String getName() {
+			return "Store.customerArrival";
+		}
+
+		public long run(ArrivalTrace trace, int counters) {
+			SimulationContext context = new SimulationContext();
+			Store sim = new Store(counters, true, context);
+			ArrivalSource source = trace.replay();
+			long ops = 0;
+			while(source.next()) {
+				sim.customerArrival(source.getNumItems());
+				ops++;
+			}
+			return ops;
+		}
+	};
+
+	/** Ticks a multiple line store through every second of the trace */
+	public static final Benchmark UPDATE_STORE = new Benchmark() {
+		public String getName() {
+			return "Store.updateStore";
+		}
+
+		public long run(ArrivalTrace trace, int counters) {
+			Store sim = new Store(counters, true, new SimulationContext());
+			LineSimulator.runTicks(trace.replay(), sim, trace.getMinutes()*60);
+			return trace.getMinutes()*60L;
+		}
+	};
+
+	/** Adds customers to a line in groups of the counter count and then removes them */
+	public static final Benchmark LINE_ADD_REMOVE = new Benchmark() {
+		public String getName() {
+			return "Line.addToLine/getNextCustomer";
+		}
+
+		public long run(ArrivalTrace trace, int counters) {
+			SimulationContext context = new SimulationContext();
+			Line line = new Line(context, 0);
+			ArrivalSource source = trace.replay();
+			long ops = 0;
+			int waiting = 0;
+			while(source.next()) {
+				line.addToLine(source.getTime(), source.getTime(), source.getNumItems(), context.nextCustomerId());
+				ops++;
+				if(++waiting == counters) {
+					while(line.getNextCustomer() != null) {
+						ops++;
+					}
+					waiting = 0;
+				}
+			}
+			return ops;
+		}
+	};
+
+	/** Runs the whole simulation of a single line store with the event engine */
+	public static final Benchmark EVENT_RUN = new Benchmark() {
+		public String getName() {
+			return "EventSimulator.run";
+		}
+
+		public long run(ArrivalTrace trace, int counters) {
+			Store sim = new Store(counters, false, new SimulationContext());
+			new EventSimulator(sim).run(trace.replay(), trace.getMinutes()*60);
+			return Math.max(1, trace.size());
+		}
+	};
+
+	/** Runs the whole simulation of a single line store one second at a time */
+	public static final Benchmark TICK_RUN = new Benchmark() {
+		public String getName() {
+			return "LineSimulator.runTicks";
+		}
+
+		public long run(ArrivalTrace trace, int counters) {
+			Store sim = new Store(counters, false, new SimulationContext());
+			LineSimulator.runTicks(trace.replay(), sim, trace.getMinutes()*60);
+			return Math.max(1, trace.size());
+		}
+	};
+
+	/** Every benchmark, in the order they are reported */
+	public static final Benchmark[] ALL = {CUSTOMER_ARRIVAL, UPDATE_STORE, LINE_ADD_REMOVE, EVENT_RUN, TICK_RUN};
+}